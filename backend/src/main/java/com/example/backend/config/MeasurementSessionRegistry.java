@@ -1,18 +1,26 @@
 package com.example.backend.config;
 
-import lombok.Getter;
-import lombok.Setter;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-@Getter
-@Setter
+
+// Serial number of the product measured on each test station
 @Component
 public class MeasurementSessionRegistry {
 
-    private volatile Integer serialNumber;
+    private final Map<Integer, Integer> serialNumbers = new ConcurrentHashMap<>();
+
+    public void registerSerialNumber(int testStationId, int serialNumber) {
+        serialNumbers.put(testStationId, serialNumber);
+    }
+
+    public Integer getSerialNumber(int testStationId) {
+        return serialNumbers.get(testStationId);
+    }
 
-    public void registerSerialNumber(int serialNumber) {
-        this.serialNumber = serialNumber;
+    public void clearSerialNumber(int testStationId) {
+        serialNumbers.remove(testStationId);
     }
 }
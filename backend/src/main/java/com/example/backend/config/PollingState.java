@@ -1,28 +1,54 @@
 package com.example.backend.config;
 
+import com.example.backend.config.threading.AcquisitionClock;
+import com.example.backend.enums.PollingStatus;
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
-@Component
+// Polling and measurement state of one test station, see PollingStateRegistry. Start and stop move the
+// status with compare-and-set, so lifecycle calls never wait for a running acquisition cycle.
 @Getter
 @Setter
 public class PollingState {
-    private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private final int testStationId;
+    private final AtomicReference<PollingStatus> status = new AtomicReference<>(PollingStatus.STOPPED);
     private final AtomicBoolean isMeasureStarted = new AtomicBoolean(false);
     private final AtomicBoolean stopRequested = new AtomicBoolean(false);
-    private final AtomicInteger currentTestStationId = new AtomicInteger(-1);
     private final AtomicReference<String> currentSessionId = new AtomicReference<>(null);
+    private final AtomicLong endTime = new AtomicLong(-1L);
+    private volatile AcquisitionClock acquisitionClock;
+    private final AtomicReference<Future<?>> runningCycle = new AtomicReference<>(null);
+    // Completed when the body of the last dispatched cycle returned; a cancelled Future is done before that
+    private final AtomicReference<CompletableFuture<Void>> cycleFinished = new AtomicReference<>(CompletableFuture.completedFuture(null));
 
+    public PollingState(int testStationId) {
+        this.testStationId = testStationId;
+    }
+
+    public boolean isRunning() {
+        return status.get() == PollingStatus.RUNNING;
+    }
+
+    // Starting or running, cycles may be dispatched
+    public boolean isActive() {
+        PollingStatus current = status.get();
+        return current == PollingStatus.STARTING || current == PollingStatus.RUNNING;
+    }
+
+    public boolean transition(PollingStatus from, PollingStatus to) {
+        return status.compareAndSet(from, to);
+    }
 
+    // Measurement flags only, the status is owned by start and stop
     public void reset() {
-        isRunning.set(false);
         isMeasureStarted.set(false);
         stopRequested.set(false);
-        currentTestStationId.set(-1);
+        endTime.set(-1L);
     }
 }
@@ -0,0 +1,21 @@
+package com.example.backend.config;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One PollingState per test station, so several stations can poll and measure at the same time
+@Component
+public class PollingStateRegistry {
+    private final Map<Integer, PollingState> states = new ConcurrentHashMap<>();
+
+    public PollingState get(int testStationId) {
+        return states.computeIfAbsent(testStationId, PollingState::new);
+    }
+
+    public boolean isRunning(int testStationId) {
+        PollingState state = states.get(testStationId);
+        return state != null && state.isRunning();
+    }
+}
@@ -1,8 +1,9 @@
 package com.example.backend.config.socket;
 
 import com.example.backend.config.PollingState;
+import com.example.backend.config.PollingStateRegistry;
+import com.example.backend.config.threading.HashedTimingWheel;
 
-import com.example.backend.config.threading.ScheduledTaskRegistry;
 import com.example.backend.events.StartPollingEvent;
 import com.example.backend.events.StopPollingEvent;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -11,6 +12,7 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.CloseStatus;
@@ -22,6 +24,7 @@ import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Component
@@ -31,22 +34,28 @@ public class WebSocketHandlerCustom extends TextWebSocketHandler {
     private final Set<WebSocketSession> connectedSessions = ConcurrentHashMap.newKeySet();
     private final Map<WebSocketSession, Integer> sessionTestStationMap = new ConcurrentHashMap<>(); // Track device per session
     private final ApplicationEventPublisher eventPublisher;
-    private final ScheduledExecutorService pollingExecutor;
-    private final ScheduledTaskRegistry scheduledTaskRegistry;
-    private final PollingState pollingState;
+    private final HashedTimingWheel timingWheel;
+    private final PollingStateRegistry pollingStateRegistry;
+    private final ExecutorService pushExecutor;
+    private final AtomicBoolean pushInFlight = new AtomicBoolean(false);
 
 
-    private final Queue<Map<String, Object>> updateQueue = new ConcurrentLinkedQueue<>();
-    private static final int MAX_BATCH_SIZE = 10;
-    private static final int MAX_QUEUE_SIZE = 50;
+    // Pending updates in arrival order, keyed by test station and the update's keys: a newer value of the same channel
+    // replaces the pending one in its place, so the queue holds at most one update per channel of a polling station
+    private final LinkedHashMap<String, Map<String, Object>> updateQueue = new LinkedHashMap<>(); // guarded by itself
+    private static final int MAX_BATCH_SIZE = 10; // per polling test station and push
+    private static final int MAX_QUEUE_SIZE = 50; // per polling test station
+    private ScheduledFuture<?> updateTask;
+    private final Set<Integer> pushingStations = ConcurrentHashMap.newKeySet(); // test stations the update task serves
 
 
     @Autowired
-    public WebSocketHandlerCustom(ApplicationEventPublisher eventPublisher, ScheduledExecutorService pollingExecutor, ScheduledTaskRegistry scheduledTaskRegistry, PollingState pollingState) {
+    public WebSocketHandlerCustom(ApplicationEventPublisher eventPublisher, HashedTimingWheel timingWheel, PollingStateRegistry pollingStateRegistry,
+                                  @Qualifier("webSocketPushExecutor") ExecutorService pushExecutor) {
         this.eventPublisher = eventPublisher;
-        this.pollingExecutor = pollingExecutor;
-        this.scheduledTaskRegistry = scheduledTaskRegistry;
-        this.pollingState = pollingState;
+        this.timingWheel = timingWheel;
+        this.pollingStateRegistry = pollingStateRegistry;
+        this.pushExecutor = pushExecutor;
     }
 
     @Override
@@ -61,53 +70,95 @@ public class WebSocketHandlerCustom extends TextWebSocketHandler {
     }
 
 
-    // grabs data from updateQueue and pushes to clients
-    public void startWebSocketUpdateTask(int testStationId) {
+    // grabs data from updateQueue and pushes to clients; one task serves all polling test stations and runs while at
+    // least one of them polls. The timing wheel only fires the tick, the push runs in its own bulkhead and a slow
+    // client skips ticks instead of queueing them
+    public synchronized void startWebSocketUpdateTask(int testStationId) {
+        pushingStations.add(testStationId);
+        if (updateTask != null && !updateTask.isDone()) {
+            log.debug("WebSocket update task already running, test station {} shares it.", testStationId);
+            return;
+        }
         log.info("Starting WebSocket update task.");
-        ScheduledFuture<?> task = pollingExecutor.scheduleWithFixedDelay(() -> {
-            try {
-                if (Thread.currentThread().isInterrupted()) {
-                    log.info("WebSocket update task interrupted. Exiting early.");
-                    return; // exit task early
-                }
-                if (!updateQueue.isEmpty()) {
-                    List<Map<String, Object>> batch = new ArrayList<>();
-                    int count = 0;
-
-                    while (!updateQueue.isEmpty() && count < MAX_BATCH_SIZE) { //10
-                        Map<String, Object> entry = updateQueue.poll(); //It retrieves and removes the first (head) element from the queue.
-                        if (entry != null) {
-                            batch.add(entry);
-                            count++;
-                        } else {
-                            log.warn("Null entry polled from updateQueue, skipping.");
-                        }
-                    }
-                    log.debug("Pushing batch of {} updates to clients.", batch.size());
-
-                    pushDataToClients(batch);
-                } else {
-                    log.debug("Update queue is empty; no data to push.");
-                }
-            } catch (Exception e) {
-                log.error("Exception occurred during WebSocket update task execution", e);
+        updateTask = timingWheel.scheduleAtFixedRate(() -> {
+            if (pushInFlight.compareAndSet(false, true)) {
+                pushExecutor.execute(this::pushPendingUpdates);
             }
         }, 0, 500, TimeUnit.MILLISECONDS);
-        scheduledTaskRegistry.register(testStationId, task);  // Add to list of scheduled tasks
-        log.info("WebSocket update task scheduled with task id: {}", task);
+        log.info("WebSocket update task scheduled with task id: {}", updateTask);
+    }
+
+    // Cancels the update task once the last test station it serves stopped polling
+    public synchronized void stopWebSocketUpdateTask(int testStationId) {
+        if (!pushingStations.remove(testStationId) || !pushingStations.isEmpty() || updateTask == null) {
+            return;
+        }
+        updateTask.cancel(false);
+        updateTask = null;
+        log.info("No test station is polling, WebSocket update task cancelled.");
+    }
+
+    private void pushPendingUpdates() {
+        try {
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("WebSocket update task interrupted. Exiting early.");
+                return; // exit task early
+            }
+            List<Map<String, Object>> batch = new ArrayList<>();
+            int maxBatchSize = MAX_BATCH_SIZE * Math.max(1, pushingStations.size()); // keeps up with every station
+            synchronized (updateQueue) {
+                Iterator<Map<String, Object>> oldest = updateQueue.values().iterator();
+                while (oldest.hasNext() && batch.size() < maxBatchSize) {
+                    batch.add(oldest.next());
+                    oldest.remove();
+                }
+            }
+            if (!batch.isEmpty()) {
+                log.debug("Pushing batch of {} updates to clients.", batch.size());
+
+                pushBatchToStations(batch);
+            } else {
+                log.debug("Update queue is empty; no data to push.");
+            }
+        } catch (Exception e) {
+            log.error("Exception occurred during WebSocket update task execution", e);
+        } finally {
+            pushInFlight.set(false);
+        }
     }
 
+    // Never blocks, it is called by the acquisition cycles within their write section of the store; a full queue
+    // drops its oldest update
     public void enqueueUpdate(Map<String, Object> update) {
-        while (updateQueue.size() >= MAX_QUEUE_SIZE) {
-            log.warn("Queue is full, applying backpressure...");
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return; // Exit if interrupted
+        String key = queueKey(update);
+        int maxQueueSize = MAX_QUEUE_SIZE * Math.max(1, pushingStations.size());
+        synchronized (updateQueue) {
+            if (updateQueue.replace(key, update) != null) {
+                return;
+            }
+            if (updateQueue.size() >= maxQueueSize) {
+                Iterator<Map<String, Object>> oldest = updateQueue.values().iterator();
+                log.warn("Queue is full, dropping the oldest update {}", oldest.next());
+                oldest.remove();
             }
+            updateQueue.put(key, update);
+        }
+    }
+
+    public int getPendingUpdateCount() {
+        synchronized (updateQueue) {
+            return updateQueue.size();
         }
-        updateQueue.add(update);
+    }
+
+    private static String queueKey(Map<String, Object> update) {
+        StringBuilder key = new StringBuilder().append(update.get("testStationId"));
+        for (String name : update.keySet()) {
+            if (!name.equals("testStationId")) {
+                key.append('/').append(name);
+            }
+        }
+        return key.toString();
     }
 
     public void pushDataToClients(Object dataBatch) {
@@ -117,42 +168,76 @@ public class WebSocketHandlerCustom extends TextWebSocketHandler {
         }
         Set<WebSocketSession> sessionsSnapshot = new HashSet<>(connectedSessions);
         for (WebSocketSession session : sessionsSnapshot) {
-            if (session != null && session.isOpen()) {
-                try {
-                    log.debug("Attempting to serialize dataBatch for session {}: {}", session.getId(), dataBatch);
-                    String messagePayload = objectMapper.writeValueAsString(dataBatch);
-                    log.debug("Serialized payload for session {}: {}", session.getId(), messagePayload);
-                    synchronized (session) {
-                        session.sendMessage(new TextMessage(messagePayload));
-                    }
-                    log.debug("Sent message to session {}", session.getId());
-                } catch (IllegalStateException | IOException e) {
-                    log.warn("Error sending message to session {}: {}", session.getId(), e.getMessage());
+            sendToSession(session, dataBatch);
+        }
+    }
+
+    private void sendToSession(WebSocketSession session, Object dataBatch) {
+        if (session != null && session.isOpen()) {
+            try {
+                log.debug("Attempting to serialize dataBatch for session {}: {}", session.getId(), dataBatch);
+                String messagePayload = objectMapper.writeValueAsString(dataBatch);
+                log.debug("Serialized payload for session {}: {}", session.getId(), messagePayload);
+                synchronized (session) {
+                    session.sendMessage(new TextMessage(messagePayload));
                 }
+                log.debug("Sent message to session {}", session.getId());
+            } catch (IllegalStateException | IOException e) {
+                log.warn("Error sending message to session {}: {}", session.getId(), e.getMessage());
             }
         }
     }
 
-    // Manually flush the update queue to open sessions before shutting down
-    public void flushPendingDataToOpenSessionsBeforeShutdown(int testStationId) {
-        if (updateQueue.isEmpty() && connectedSessions.isEmpty()) {
-            log.info("No pending data to flush or no active WebSocket sessions for device {}", testStationId);
-            return;
+    // Each update carries its testStationId and goes to the sessions watching that station
+    private void pushBatchToStations(List<Map<String, Object>> batch) {
+        Map<Object, List<Map<String, Object>>> byStation = new LinkedHashMap<>();
+        for (Map<String, Object> update : batch) {
+            byStation.computeIfAbsent(update.get("testStationId"), k -> new ArrayList<>()).add(update);
         }
+        byStation.forEach((testStationId, updates) -> {
+            if (testStationId instanceof Integer id) {
+                pushDataToStation(id, updates);
+            } else {
+                pushDataToClients(updates);
+            }
+        });
+    }
 
-        log.info("Flushing updateQueue to WebSocket clients for testStationId {}", testStationId);
-        log.debug("updateQueue contents: {}", new ArrayList<>(updateQueue));
+    // Sessions that have not selected a test station yet receive every station's data
+    public void pushDataToStation(int testStationId, Object data) {
+        if (data == null) {
+            log.warn("pushDataToStation called with null data, skipping.");
+            return;
+        }
+        for (WebSocketSession session : new HashSet<>(connectedSessions)) {
+            Integer sessionTestStationId = sessionTestStationMap.get(session);
+            if (sessionTestStationId == null || sessionTestStationId == testStationId) {
+                sendToSession(session, data);
+            }
+        }
+    }
 
+    // Manually flush the pending updates of a test station to open sessions before shutting down; the updates of
+    // the other stations stay queued for the update task
+    public void flushPendingDataToOpenSessionsBeforeShutdown(int testStationId) {
         List<Map<String, Object>> batch = new ArrayList<>();
-        Map<String, Object> entry;
-        while ((entry = updateQueue.poll()) != null) {
-            batch.add(entry);
+        synchronized (updateQueue) {
+            Iterator<Map<String, Object>> pending = updateQueue.values().iterator();
+            while (pending.hasNext()) {
+                Map<String, Object> entry = pending.next();
+                if (Objects.equals(entry.get("testStationId"), testStationId)) {
+                    batch.add(entry);
+                    pending.remove();
+                }
+            }
         }
+        log.info("Flushing {} pending update(s) to WebSocket clients for testStationId {}", batch.size(), testStationId);
+        log.debug("Flushed updates: {}", batch);
         if (!batch.isEmpty()) {
             System.out.println("getConnectedSessions " + getConnectedSessions().isEmpty());
             if (!getConnectedSessions().isEmpty()) {
                 try {
-                    pushDataToClients(batch);
+                    pushBatchToStations(batch);
                 } catch (Exception e) {
                     log.error("Error while pushing data to clients for device {}: {}", testStationId, e.getMessage(), e);
                 }
@@ -171,13 +256,11 @@ public class WebSocketHandlerCustom extends TextWebSocketHandler {
         log.info("afterConnectionClosed called for session {} at {}", session.getId(), Instant.now());
         Integer closedTestStationId = sessionTestStationMap.remove(session); // remove key
         connectedSessions.remove(session);
-        System.out.println("currentStation from after connection closed " + pollingState.getCurrentTestStationId().get());
         log.info("closedTestStationId = {}", closedTestStationId);
-        log.info("pollingState.getCurrentTestStationId() = {}", pollingState.getCurrentTestStationId().get());
         log.info("session.getId() = {}", session.getId());
-        log.info("pollingState.getCurrentSessionId() = {}", pollingState.getCurrentSessionId().get());
+        PollingState pollingState = closedTestStationId != null ? pollingStateRegistry.get(closedTestStationId) : null;
 
-        boolean isCurrentSession = session.getId().equals(pollingState.getCurrentSessionId().get());
+        boolean isCurrentSession = pollingState != null && session.getId().equals(pollingState.getCurrentSessionId().get());
         // Close session if open (optional)
         if (session.isOpen()) {
             try {
@@ -190,13 +273,12 @@ public class WebSocketHandlerCustom extends TextWebSocketHandler {
             log.info("Session {} was already closed.", session.getId());
         }
         // most case when reset
-        if (closedTestStationId != null && closedTestStationId.equals(pollingState.getCurrentTestStationId().get()) && isCurrentSession  && pollingState.getIsRunning().get()) {
-            log.info("Closed session corresponds to active polling testStationId {}, stopping polling.", closedTestStationId + " active test station is " + pollingState.getCurrentTestStationId());
+        if (isCurrentSession && pollingState.isRunning()) {
+            log.info("Closed session owns polling of testStationId {}, stopping polling.", closedTestStationId);
             eventPublisher.publishEvent(new StopPollingEvent(this, closedTestStationId));
             pollingState.getCurrentSessionId().set(null);
         } else {
-            log.info("Skipping stopPolling — closed session's test station {} is not the active polling station {}.",
-                    closedTestStationId, pollingState.getCurrentTestStationId().get());
+            log.info("Skipping stopPolling — closed session does not own polling of test station {}.", closedTestStationId);
         }
         // Always clear current session if it matches
         if (isCurrentSession) {
@@ -231,12 +313,11 @@ public class WebSocketHandlerCustom extends TextWebSocketHandler {
         try {
             int newTestStationId = Integer.parseInt(testStationIdString);
 
-            System.out.println("CurrentSessionId() is " + pollingState.getCurrentSessionId().get());
+            PollingState pollingState = pollingStateRegistry.get(newTestStationId);
             sessionTestStationMap.put(session, newTestStationId);
             pollingState.getCurrentSessionId().set(session.getId());
-            log.info("pollingState.setCurrentTestStationId() = {}", pollingState.getCurrentTestStationId().get());
             log.info("Mapped session {} to testStationId {}", session.getId(), newTestStationId);
-            log.info("Updated pollingState.getCurrentSessionId(){}", pollingState.getCurrentSessionId());
+            log.info("Updated current session of testStationId {} to {}", newTestStationId, pollingState.getCurrentSessionId());
 
             eventPublisher.publishEvent(new StartPollingEvent(this, newTestStationId));
 
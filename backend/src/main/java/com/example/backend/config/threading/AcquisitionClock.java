@@ -0,0 +1,92 @@
+package com.example.backend.config.threading;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed-rate tick grid anchored at a monotonic start time, tick n is due at anchor + n * period. The anchor is
+ * shifted by the station's phase, so stations sharing a gateway do not tick at the same instant.
+ * The acquisition task runs at a fixed rate and asks the clock which tick it serves; grid points that passed
+ * while a cycle overran are counted as skipped instead of being caught up in a burst, so the samples stay on
+ * the grid and never drift with the read time.
+ */
+@Slf4j
+public class AcquisitionClock {
+
+    private final long periodNanos;
+    private final long anchorNanos;
+    private final AtomicLong cycles = new AtomicLong();
+    private final AtomicLong skippedTicks = new AtomicLong();
+    private final AtomicLong overrunCycles = new AtomicLong();
+    private final AtomicLong lateEndpoints = new AtomicLong();
+    private long lastTick = -1; // cycles of a station never overlap, each starts after the previous one is done
+
+    public AcquisitionClock(long periodMillis) {
+        this(periodMillis, 0);
+    }
+
+    public AcquisitionClock(long periodMillis, long phaseMillis) {
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Acquisition period must be positive: " + periodMillis);
+        }
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        this.anchorNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(phaseMillis);
+    }
+
+    // Tick served by a run starting now, or -1 if the executor is catching up on a tick that was already served
+    public long beginTick(long nowNanos) {
+        long tick = Math.max(0, (nowNanos - anchorNanos) / periodNanos);
+        if (tick <= lastTick) {
+            return -1;
+        }
+        long missed = tick - lastTick - 1;
+        if (missed > 0) {
+            skippedTicks.addAndGet(missed);
+            log.warn("Acquisition skipped {} tick(s) before tick {}, the previous cycle overran its {} ms period",
+                    missed, tick, TimeUnit.NANOSECONDS.toMillis(periodNanos));
+        }
+        lastTick = tick;
+        cycles.incrementAndGet();
+        return tick;
+    }
+
+    public void endTick(long startedNanos) {
+        if (System.nanoTime() - startedNanos > periodNanos) {
+            overrunCycles.incrementAndGet();
+        }
+    }
+
+    public void recordLateEndpoints(int count) {
+        lateEndpoints.addAndGet(count);
+    }
+
+    public long getScheduledNanos(long tick) {
+        return anchorNanos + tick * periodNanos;
+    }
+
+    public long getPeriodMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(periodNanos);
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public long getCycles() {
+        return cycles.get();
+    }
+
+    public long getSkippedTicks() {
+        return skippedTicks.get();
+    }
+
+    public long getOverrunCycles() {
+        return overrunCycles.get();
+    }
+
+    public long getLateEndpoints() {
+        return lateEndpoints.get();
+    }
+}
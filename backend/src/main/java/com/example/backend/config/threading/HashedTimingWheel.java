@@ -0,0 +1,273 @@
+package com.example.backend.config.threading;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel for the timer ticks of polling, WebSocket push and measurement timeouts. Timeouts are
+ * hashed by deadline into wheelSize buckets of tickMillis each; one worker thread advances a bucket per tick and
+ * fires the timeouts that are due, so schedule and cancel are O(1) and the cost per tick does not grow with the
+ * number of stations and channels. Deadlines are rounded up to the next tick.
+ * <p>
+ * Tasks run on the worker thread and must only hand work off (to a bulkhead, a future or a flag); a blocking
+ * task delays every other timer. A periodic task runs at a fixed rate and, like a ScheduledThreadPoolExecutor,
+ * is not run again after it throws.
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<WheelTimeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger activeTimeouts = new AtomicInteger();
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean stopped;
+    private long tick; // worker thread only
+
+    public HashedTimingWheel(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("Timing wheel tick must be positive: " + tickMillis);
+        }
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Timing wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, "timing-wheel");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public ScheduledFuture<?> schedule(Runnable task, long delay, TimeUnit unit) {
+        return add(new WheelTimeout(task, System.nanoTime() + unit.toNanos(Math.max(0, delay)), 0));
+    }
+
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        return add(new WheelTimeout(task, System.nanoTime() + unit.toNanos(Math.max(0, initialDelay)), unit.toNanos(period)));
+    }
+
+    // Scheduled and not yet cancelled or completed
+    public int getActiveTimeouts() {
+        return activeTimeouts.get();
+    }
+
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 10);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Timing wheel stopped with {} active timeout(s)", activeTimeouts.get());
+    }
+
+    private ScheduledFuture<?> add(WheelTimeout timeout) {
+        if (stopped) {
+            throw new RejectedExecutionException("Timing wheel is stopped");
+        }
+        activeTimeouts.incrementAndGet();
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (!stopped) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleepNanos;
+            while ((sleepNanos = deadline - System.nanoTime()) > 0 && !stopped) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+            if (stopped) {
+                break;
+            }
+            removeCancelled();
+            transferPending();
+            wheel[(int) (tick & mask)].expire(deadline);
+            tick++;
+        }
+    }
+
+    private void removeCancelled() {
+        WheelTimeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    // A deadline that already passed lands in the current bucket, which is expired right after
+    private void transferPending() {
+        WheelTimeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.state.get() == WheelTimeout.CANCELLED) {
+                continue;
+            }
+            long calculated = Math.ceilDiv(timeout.deadlineNanos - startNanos, tickNanos) - 1;
+            timeout.remainingRounds = Math.max(0, (calculated - tick) / wheel.length);
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private final class Bucket {
+        private WheelTimeout head;
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(long deadline) {
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+                if (timeout.state.get() == WheelTimeout.CANCELLED) {
+                    remove(timeout);
+                } else if (timeout.remainingRounds <= 0 && timeout.deadlineNanos <= deadline) {
+                    remove(timeout);
+                    timeout.fire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(WheelTimeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    private final class WheelTimeout implements ScheduledFuture<Void> {
+        static final int ACTIVE = 0;
+        static final int CANCELLED = 1;
+        static final int DONE = 2;
+
+        private final Runnable task;
+        private final long periodNanos;
+        private final AtomicInteger state = new AtomicInteger(ACTIVE);
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile long deadlineNanos;
+        // worker thread only
+        private long remainingRounds;
+        private Bucket bucket;
+        private WheelTimeout prev;
+        private WheelTimeout next;
+
+        WheelTimeout(Runnable task, long deadlineNanos, long periodNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+        }
+
+        void fire() {
+            if (periodNanos == 0 && !state.compareAndSet(ACTIVE, DONE)) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("Timer task {} failed{}", task, periodNanos > 0 ? ", it will not run again" : "", t);
+                if (periodNanos == 0 || state.compareAndSet(ACTIVE, DONE)) {
+                    activeTimeouts.decrementAndGet();
+                }
+                completion.completeExceptionally(t);
+                return;
+            }
+            if (periodNanos == 0) {
+                activeTimeouts.decrementAndGet();
+                completion.complete(null);
+            } else if (state.get() == ACTIVE) {
+                deadlineNanos += periodNanos; // fixed rate: the next run is due one period after the last deadline
+                pendingTimeouts.add(this);
+            }
+        }
+
+        // Timer tasks only hand work off, so there is no running task worth interrupting
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!state.compareAndSet(ACTIVE, CANCELLED)) {
+                return false;
+            }
+            activeTimeouts.decrementAndGet();
+            cancelledTimeouts.add(this);
+            completion.cancel(false);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return completion.isDone();
+        }
+
+        @Override
+        public Void get() throws InterruptedException, ExecutionException {
+            return completion.get();
+        }
+
+        @Override
+        public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            return completion.get(timeout, unit);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public String toString() {
+            return "WheelTimeout[" + task + ", due in " + getDelay(TimeUnit.MILLISECONDS) + " ms"
+                    + (periodNanos > 0 ? ", every " + TimeUnit.NANOSECONDS.toMillis(periodNanos) + " ms" : "") + "]";
+        }
+    }
+}
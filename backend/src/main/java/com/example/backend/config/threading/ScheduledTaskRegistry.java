@@ -8,18 +8,18 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 
 @Slf4j
 @Component
 public class ScheduledTaskRegistry {
-    private final ScheduledExecutorService scheduledExecutorService;
+    private final HashedTimingWheel timingWheel;
     private final Map<Integer, List<ScheduledFuture<?>>> taskMap = new ConcurrentHashMap<>();
 
 
-    public ScheduledTaskRegistry(ScheduledExecutorService scheduledExecutorService) {
-        this.scheduledExecutorService = scheduledExecutorService;
+    // Depends on the wheel, so the tasks are cancelled before the wheel is stopped
+    public ScheduledTaskRegistry(HashedTimingWheel timingWheel) {
+        this.timingWheel = timingWheel;
     }
 
 
@@ -33,11 +33,16 @@ public class ScheduledTaskRegistry {
 
 
     public void cancelAll(int testStationId) {
+        cancelAll(testStationId, false);
+    }
+
+    // mayInterruptIfRunning also interrupts a task that is running right now, e.g. a cycle blocked on a Modbus read
+    public void cancelAll(int testStationId, boolean mayInterruptIfRunning) {
         List<ScheduledFuture<?>> tasks = taskMap.remove(testStationId);
         if (tasks != null && !tasks.isEmpty()) {
             for (ScheduledFuture<?> task : tasks) {
                 System.out.println("Cancelling task " + task.toString() + " for test station " + testStationId);
-                task.cancel(false);
+                task.cancel(mayInterruptIfRunning);
             }
             log.info("Cancelled {} scheduled task(s) for testStationId {}", tasks.size(), testStationId);
         } else {
@@ -56,7 +61,7 @@ public class ScheduledTaskRegistry {
     @PreDestroy
     public void onShutdown() {
         System.out.println("Cancelling all registered scheduled tasks...");
-        cancelAll(); // cancel before executor is shut down
-        scheduledExecutorService.shutdown();
+        cancelAll(); // cancel before the timing wheel is stopped
+        log.info("{} timer(s) still active on the timing wheel", timingWheel.getActiveTimeouts());
     }
 }
@@ -1,18 +1,85 @@
 package com.example.backend.config.threading;
 
+import com.example.backend.enums.ExecutionMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
+// The timing wheel only fires timer ticks; the work of a tick runs in the bulkhead of its kind, so blocking
+// Modbus I/O, WebSocket pushes and control requests cannot starve each other or the timers
+@Slf4j
 @Configuration
 public class TaskExecutorConfig {
 
-    @Bean
-    public ScheduledExecutorService scheduledExecutorService() {
-        int corePoolSize = Runtime.getRuntime().availableProcessors();
-        System.out.println("max threads " + corePoolSize);
-        return new ScheduledThreadPoolExecutor(corePoolSize, new ThreadPoolExecutor.AbortPolicy());
+    private final ExecutionMode executionMode;
+
+    public TaskExecutorConfig(@Value("${execution.mode:PLATFORM}") ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+        log.info("Execution mode: {}", executionMode);
+    }
+
+    // One worker thread for every periodic tick and timeout, however many stations and channels are polled
+    @Bean(destroyMethod = "stop")
+    public HashedTimingWheel timingWheel(@Value("${scheduling.wheel.tick-ms:10}") long tickMillis,
+                                         @Value("${scheduling.wheel.size:512}") int wheelSize) {
+        return new HashedTimingWheel(tickMillis, wheelSize);
+    }
+
+    // One virtual thread per endpoint read of a cycle; a read blocked on a slow gateway costs no platform thread,
+    // so the scheduled cycles are never starved by Modbus I/O
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService modbusReadExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("modbus-read-", 0).factory());
+    }
+
+    // Acquisition cycles, at most one per polling test station
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService pollingIoExecutor(@Value("${execution.bulkhead.io-threads:16}") int threads) {
+        return bulkhead("polling-io-", threads);
+    }
+
+    // WebSocket update batches
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService webSocketPushExecutor(@Value("${execution.bulkhead.push-threads:2}") int threads) {
+        return bulkhead("ws-push-", threads);
+    }
+
+    // Measurement start and stop requests
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService controlExecutor(@Value("${execution.bulkhead.control-threads:4}") int threads) {
+        return bulkhead("control-", threads);
+    }
+
+    // The single writer of the session archives, a platform thread in both modes: its queue keeps the records of a
+    // file in tick order, which tasks waiting on a bulkhead semaphore would not
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService archiveExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "archive-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // At most threads tasks run at once in both modes; virtual threads are not pooled but bounded by a semaphore
+    private ExecutorService bulkhead(String prefix, int threads) {
+        if (executionMode == ExecutionMode.VIRTUAL) {
+            return new VirtualThreadBulkhead(prefix, threads);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 }
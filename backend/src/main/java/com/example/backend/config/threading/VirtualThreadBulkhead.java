@@ -0,0 +1,66 @@
+package com.example.backend.config.threading;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// A bulkhead of virtual threads: every task gets its own thread, which is never pooled, and a semaphore lets at
+// most maxConcurrent of them run at once. Waiting tasks park on the semaphore instead of queueing in a pool.
+public class VirtualThreadBulkhead extends AbstractExecutorService {
+
+    private final ExecutorService threadPerTask;
+    private final Semaphore permits;
+
+    public VirtualThreadBulkhead(String prefix, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Bulkhead " + prefix + " needs at least one thread: " + maxConcurrent);
+        }
+        this.threadPerTask = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory());
+        this.permits = new Semaphore(maxConcurrent, true); // waiting tasks start in the order they acquire
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        threadPerTask.execute(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // shut down while waiting, the task never started
+                return;
+            }
+            try {
+                command.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        threadPerTask.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return threadPerTask.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return threadPerTask.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return threadPerTask.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return threadPerTask.awaitTermination(timeout, unit);
+    }
+}
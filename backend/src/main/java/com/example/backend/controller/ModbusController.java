@@ -1,13 +1,19 @@
 package com.example.backend.controller;
 
- import com.example.backend.exception.PollingException;
+ import com.example.backend.enums.HistoryResolution;
+import com.example.backend.enums.MeasurementChannel;
+import com.example.backend.exception.PollingException;
+import com.example.backend.exception.TestStationNotFoundException;
 import com.example.backend.models.TestStation;
 import com.example.backend.models.ValueRange;
 import com.example.backend.service.machine.MachineTypeService;
+import com.example.backend.service.measurement.MeasurementHistoryService;
+import com.example.backend.service.polling.CycleMetricsService;
 import com.example.backend.service.polling.ModbusPollingService;
 import com.example.backend.service.polling.PollingControlService;
 import com.example.backend.service.teststation.TestStationService;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -15,7 +21,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ExecutorService;
 
 @Slf4j
 @RestController
@@ -25,14 +31,19 @@ public class ModbusController {
     private final ModbusPollingService modbusPollingService;
     private final MachineTypeService machineTypeService;
     private final PollingControlService pollingControlService;
-    private final ScheduledExecutorService executor;
+    private final ExecutorService executor;
+    private final CycleMetricsService cycleMetricsService;
+    private final MeasurementHistoryService measurementHistoryService;
 
-    public ModbusController(TestStationService testStationService, ModbusPollingService modbusPollingService, MachineTypeService machineTypeService, PollingControlService pollingControlService, ScheduledExecutorService executor ) {
+    public ModbusController(TestStationService testStationService, ModbusPollingService modbusPollingService, MachineTypeService machineTypeService, PollingControlService pollingControlService, @Qualifier("controlExecutor") ExecutorService executor,
+                            CycleMetricsService cycleMetricsService, MeasurementHistoryService measurementHistoryService) {
         this.testStationService = testStationService;
         this.modbusPollingService = modbusPollingService;
         this.machineTypeService = machineTypeService;
         this.pollingControlService = pollingControlService;
         this.executor = executor;
+        this.cycleMetricsService = cycleMetricsService;
+        this.measurementHistoryService = measurementHistoryService;
      }
 
     @GetMapping
@@ -88,6 +99,35 @@ public class ModbusController {
     }
 
 
+    // Cycle durations, read times, skipped ticks and stale channels of the station's current polling run
+    @GetMapping("/{testStationId}/metrics")
+    public ResponseEntity<Map<String, Object>> getCycleMetrics(@PathVariable int testStationId) {
+        try {
+            testStationService.getTestStationById(testStationId);
+        } catch (TestStationNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(cycleMetricsService.getMetrics(testStationId));
+    }
+
+    // History of one channel in the current polling session, raw samples or 10 s / 1 min buckets; from and to in epoch millis
+    @GetMapping("/{testStationId}/history/{channel}")
+    public ResponseEntity<?> getHistory(@PathVariable int testStationId, @PathVariable MeasurementChannel channel,
+                                        @RequestParam(defaultValue = "RAW") HistoryResolution resolution,
+                                        @RequestParam(defaultValue = "0") long from,
+                                        @RequestParam(defaultValue = "" + Long.MAX_VALUE) long to) {
+        try {
+            testStationService.getTestStationById(testStationId);
+        } catch (TestStationNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        }
+        if (resolution == HistoryResolution.RAW) {
+            return ResponseEntity.ok(measurementHistoryService.getSamples(testStationId, channel, from, to));
+        }
+        return ResponseEntity.ok(measurementHistoryService.getBuckets(testStationId, channel, resolution, from, to));
+    }
+
+
     @GetMapping("/borders")
     public ResponseEntity<Map<String, ValueRange>> getTestStationBorders() {
         Map<String, ValueRange> borders = machineTypeService.getDefaultValues();
@@ -18,8 +18,8 @@ public class ProductionProtocolController {
     }
 
     @PostMapping("/submit")
-    public ResponseEntity<ProductionProtocol> submit() {
-        ProductionProtocol protocol = productionProtocolService.recordData();
+    public ResponseEntity<ProductionProtocol> submit(@RequestParam int testStationId) {
+        ProductionProtocol protocol = productionProtocolService.recordData(testStationId);
         if (protocol == null) {
             return ResponseEntity
                     .status(HttpStatus.NOT_FOUND)
@@ -19,10 +19,10 @@ public class ProductsController {
     }
 
     @GetMapping("/status/{serialNumber}")
-    public ResponseEntity<Short> getProductStatus(@PathVariable Integer serialNumber) {
+    public ResponseEntity<Short> getProductStatus(@PathVariable Integer serialNumber, @RequestParam int testStationId) {
         Short status = productService.getProductStatusBySerialNumber(serialNumber);
 
-        measurementSessionRegistry.registerSerialNumber(serialNumber);
+        measurementSessionRegistry.registerSerialNumber(testStationId, serialNumber);
         if (status == null) {
             return ResponseEntity.notFound().build();
         }
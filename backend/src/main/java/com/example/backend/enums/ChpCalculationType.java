@@ -3,28 +3,36 @@ package com.example.backend.enums;
 
 import com.example.backend.models.SubDevice;
 
-public enum ChpCalculationType { // Combined Heat and Power BhkwTypes
-    EXHAUST_TEMPERATURE(40018),
-    HEATING_WATER_RETURN(40026),
-    HEATING_WATER_FLOW(40025),
-    ENGINE_COOLANT_RETURN(40027),
-    ENGINE_COOLANT_FLOW(40028),
-    ENGINE_COOLANT(40033),
-    CONTROL_CABINET(40029),
-    HOUSING(40030),
-    GENERATOR_WINDING(40031),
-    ENGINE_OIL(40032),
-    OPERATING_HOURS(43587), //2
-    START_COUNT(43589);
+public enum ChpCalculationType implements PolledChannel { // Combined Heat and Power BhkwTypes
+    EXHAUST_TEMPERATURE(40018, 1000),
+    HEATING_WATER_RETURN(40026, 1000),
+    HEATING_WATER_FLOW(40025, 1000),
+    ENGINE_COOLANT_RETURN(40027, 1000),
+    ENGINE_COOLANT_FLOW(40028, 1000),
+    ENGINE_COOLANT(40033, 1000),
+    CONTROL_CABINET(40029, 1000),
+    HOUSING(40030, 1000),
+    GENERATOR_WINDING(40031, 1000),
+    ENGINE_OIL(40032, 1000),
+    OPERATING_HOURS(43587, 60000), //2
+    START_COUNT(43589, 60000);
 
     private final int offset;
+    private final long defaultIntervalMillis;
 
-    ChpCalculationType(int offset) {
+    ChpCalculationType(int offset, long defaultIntervalMillis) {
         this.offset = offset;
+        this.defaultIntervalMillis = defaultIntervalMillis;
     }
 
+    @Override
     public int getStartAddress(SubDevice subDevice) {
         int baseAddress = subDevice.getStartAddress();
         return baseAddress + offset;
     }
+
+    @Override
+    public long getDefaultIntervalMillis() {
+        return defaultIntervalMillis;
+    }
 }
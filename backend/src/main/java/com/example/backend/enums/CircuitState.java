@@ -0,0 +1,7 @@
+package com.example.backend.enums;
+
+public enum CircuitState {
+    CLOSED,    // requests pass, consecutive failures are counted
+    OPEN,      // requests fail immediately until the open period has passed
+    HALF_OPEN  // one probe request decides between CLOSED and OPEN
+}
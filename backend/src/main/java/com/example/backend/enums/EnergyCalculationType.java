@@ -4,30 +4,34 @@ package com.example.backend.enums;
  import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
-public enum EnergyCalculationType {
-    GENERATED_ENERGY(10),
-    CONSUMED_ENERGY(20),
-    ACTIVE_POWER(30),
-    REACTIVE_POWER_BLIND_POWER(40),
-    APPARENT_POWER_RESERVED(50),
-    VOLTAGE_L1_VOLTS(60),
-    VOLTAGE_L2_VOLTS(70),
-    VOLTAGE_L3_VOLTS(80),
-    FREQUENCY(90),
-    CURRENT(100),
+public enum EnergyCalculationType implements PolledChannel {
+    GENERATED_ENERGY(10, 1000),
+    CONSUMED_ENERGY(20, 1000),
+    ACTIVE_POWER(30, 1000),
+    REACTIVE_POWER_BLIND_POWER(40, 1000),
+    APPARENT_POWER_RESERVED(50, 1000),
+    VOLTAGE_L1_VOLTS(60, 1000),
+    VOLTAGE_L2_VOLTS(70, 1000),
+    VOLTAGE_L3_VOLTS(80, 1000),
+    FREQUENCY(90, 1000),
+    CURRENT(100, 1000),
     COS_PHI;
 
     private final int offset;
+    private final long defaultIntervalMillis;
 
-    EnergyCalculationType(int offset) {
+    EnergyCalculationType(int offset, long defaultIntervalMillis) {
         this.offset = offset;
+        this.defaultIntervalMillis = defaultIntervalMillis;
     }
 
     // No-arg constructor
     EnergyCalculationType() {
         this.offset = 0; // or some default
+        this.defaultIntervalMillis = 0; // derived, never read from the bus
     }
 
+    @Override
     public int getStartAddress(SubDevice subDevice) {
         int baseAddress = subDevice.getStartAddress();
         if (this == COS_PHI) {
@@ -36,4 +40,9 @@ public enum EnergyCalculationType {
         }
         return baseAddress + offset;
     }
+
+    @Override
+    public long getDefaultIntervalMillis() {
+        return defaultIntervalMillis;
+    }
 }
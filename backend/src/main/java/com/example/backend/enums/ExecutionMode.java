@@ -0,0 +1,6 @@
+package com.example.backend.enums;
+
+public enum ExecutionMode {
+    PLATFORM, // bulkheads run on platform threads
+    VIRTUAL   // bulkheads run on virtual threads, a task blocked on I/O holds no carrier thread
+}
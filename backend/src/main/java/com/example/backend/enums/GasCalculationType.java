@@ -3,23 +3,26 @@ package com.example.backend.enums;
 
 import com.example.backend.models.SubDevice;
 
-public enum GasCalculationType {
-    GAS_TEMPERATURE(0),
-    GAS_METER(24),
-    AMBIENT_TEMPERATURE(-1),  // Special case, will be handled separately
-    AMBIENT_PRESSURE(-1),
-    GAS_PRESSURE(32);
+public enum GasCalculationType implements PolledChannel {
+    GAS_TEMPERATURE(0, 1000),
+    GAS_METER(24, 1000),
+    AMBIENT_TEMPERATURE(-1, 10000),  // Special case, will be handled separately
+    AMBIENT_PRESSURE(-1, 10000),
+    GAS_PRESSURE(32, 1000);
 
 
 
 
 
     private final int offset;
+    private final long defaultIntervalMillis;
 
-    GasCalculationType(int offset) {
+    GasCalculationType(int offset, long defaultIntervalMillis) {
         this.offset = offset;
+        this.defaultIntervalMillis = defaultIntervalMillis;
     }
 
+    @Override
     public int getStartAddress(SubDevice subDevice) {
         int baseAddress = subDevice.getStartAddress();
         if (this == AMBIENT_TEMPERATURE) {
@@ -30,4 +33,9 @@ public enum GasCalculationType {
             return baseAddress + offset;
         }
     }
+
+    @Override
+    public long getDefaultIntervalMillis() {
+        return defaultIntervalMillis;
+    }
 }
@@ -3,27 +3,33 @@ package com.example.backend.enums;
 
 import com.example.backend.models.SubDevice;
 
-public enum HeatingCalculationType {
-    GENERATED_ENERGY_HEATING(10),
-    SUPPLY_TEMPERATURE(50),
-    VOLUME_FLOW(40),
-    TEMPERATURE_DIFFERENCE(70),
-    POWER(30),
-    TOTAL_VOLUME(20),
-    RETURN_TEMPERATURE(60);
+public enum HeatingCalculationType implements PolledChannel {
+    GENERATED_ENERGY_HEATING(10, 1000),
+    SUPPLY_TEMPERATURE(50, 1000),
+    VOLUME_FLOW(40, 1000),
+    TEMPERATURE_DIFFERENCE(70, 1000),
+    POWER(30, 1000),
+    TOTAL_VOLUME(20, 1000),
+    RETURN_TEMPERATURE(60, 1000);
 
 
 
     private final int offset;
+    private final long defaultIntervalMillis;
 
-    HeatingCalculationType(int offset) {
+    HeatingCalculationType(int offset, long defaultIntervalMillis) {
         this.offset = offset;
+        this.defaultIntervalMillis = defaultIntervalMillis;
     }
 
+    @Override
     public int getStartAddress(SubDevice subDevice) {
         int baseAddress = subDevice.getStartAddress();
         return baseAddress + offset;
     }
 
-
+    @Override
+    public long getDefaultIntervalMillis() {
+        return defaultIntervalMillis;
+    }
 }
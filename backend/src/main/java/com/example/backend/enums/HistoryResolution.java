@@ -0,0 +1,17 @@
+package com.example.backend.enums;
+
+public enum HistoryResolution {
+    RAW(0),            // every sample as it was read
+    TEN_SECONDS(10_000),
+    ONE_MINUTE(60_000);
+
+    private final int bucketMillis;
+
+    HistoryResolution(int bucketMillis) {
+        this.bucketMillis = bucketMillis;
+    }
+
+    public int getBucketMillis() {
+        return bucketMillis;
+    }
+}
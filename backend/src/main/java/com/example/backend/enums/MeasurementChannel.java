@@ -0,0 +1,106 @@
+package com.example.backend.enums;
+
+import java.util.Locale;
+
+import static com.example.backend.enums.SubDeviceType.*;
+
+// Every value kept for a test station, across all SubDevice types; the name is the key pushed to the clients.
+// Values are stored converted to their unit and only formatted when they are sent: channels with decimals
+// go out as a "%.2f" string, channels without as an integer, as the clients have always received them.
+// The default deadbands (absolute in the channel's unit, relative to the last pushed value) keep noisy power and
+// temperature channels from being pushed on every jitter; counters and meter readings have none.
+public enum MeasurementChannel {
+    GENERATED_ENERGY(ENERGY, 2, 0, 0),
+    CONSUMED_ENERGY(ENERGY, 2, 0, 0),
+    ACTIVE_POWER(ENERGY, 2, 0, 0.005),
+    REACTIVE_POWER_BLIND_POWER(ENERGY, 2, 0, 0.005),
+    APPARENT_POWER_RESERVED(ENERGY, 2, 0, 0.005),
+    VOLTAGE_L1_VOLTS(ENERGY, 2, 0.1, 0),
+    VOLTAGE_L2_VOLTS(ENERGY, 2, 0.1, 0),
+    VOLTAGE_L3_VOLTS(ENERGY, 2, 0.1, 0),
+    FREQUENCY(ENERGY, 2, 0.01, 0),
+    CURRENT(ENERGY, 2, 0, 0.005),
+    COS_PHI(ENERGY, 2, 0.005, 0),
+
+    GENERATED_ENERGY_HEATING(HEATING, 0, 0, 0),
+    SUPPLY_TEMPERATURE(HEATING, 0, 0, 0),
+    VOLUME_FLOW(HEATING, 2, 0, 0.005),
+    TEMPERATURE_DIFFERENCE(HEATING, 2, 0.05, 0),
+    POWER(HEATING, 2, 0, 0.005),
+    TOTAL_VOLUME(HEATING, 2, 0, 0),
+    RETURN_TEMPERATURE(HEATING, 0, 0, 0),
+
+    GAS_TEMPERATURE(GAS, 2, 0.1, 0),
+    GAS_METER(GAS, 0, 0, 0),
+    AMBIENT_TEMPERATURE(GAS, 2, 0.1, 0),
+    AMBIENT_PRESSURE(GAS, 2, 0.1, 0),
+    GAS_PRESSURE(GAS, 2, 0.1, 0), // flow pressure above ambient
+
+    EXHAUST_TEMPERATURE(CHP, 2, 0.1, 0),
+    HEATING_WATER_RETURN(CHP, 2, 0.1, 0),
+    HEATING_WATER_FLOW(CHP, 2, 0.1, 0),
+    ENGINE_COOLANT_RETURN(CHP, 2, 0.1, 0),
+    ENGINE_COOLANT_FLOW(CHP, 2, 0.1, 0),
+    ENGINE_COOLANT(CHP, 2, 0.1, 0),
+    CONTROL_CABINET(CHP, 2, 0.1, 0),
+    HOUSING(CHP, 2, 0.1, 0),
+    GENERATOR_WINDING(CHP, 2, 0.1, 0),
+    ENGINE_OIL(CHP, 2, 0.1, 0),
+    OPERATING_HOURS(CHP, 0, 0, 0),
+    START_COUNT(CHP, 0, 0, 0);
+
+    private final SubDeviceType subDeviceType;
+    private final int decimals;
+    private final double scale;
+    private final String pattern;
+    private final double defaultAbsoluteDeadband;
+    private final double defaultRelativeDeadband;
+
+    MeasurementChannel(SubDeviceType subDeviceType, int decimals, double defaultAbsoluteDeadband, double defaultRelativeDeadband) {
+        this.subDeviceType = subDeviceType;
+        this.decimals = decimals;
+        this.defaultAbsoluteDeadband = defaultAbsoluteDeadband;
+        this.defaultRelativeDeadband = defaultRelativeDeadband;
+        this.scale = Math.pow(10, decimals);
+        this.pattern = "%." + decimals + "f";
+    }
+
+    // The channel a calculation type is stored in, they share the name
+    public static MeasurementChannel of(PolledChannel type) {
+        return valueOf(type.name());
+    }
+
+    public SubDeviceType getSubDeviceType() {
+        return subDeviceType;
+    }
+
+    public int getDecimals() {
+        return decimals;
+    }
+
+    public double getDefaultAbsoluteDeadband() {
+        return defaultAbsoluteDeadband;
+    }
+
+    public double getDefaultRelativeDeadband() {
+        return defaultRelativeDeadband;
+    }
+
+    // The value as sent to the clients
+    public Object format(double value) {
+        if (decimals == 0) {
+            return Math.round(value);
+        }
+        return String.format(Locale.US, pattern, value);
+    }
+
+    // The value rounded to the precision it is sent with, the way format rounds it
+    public double round(double value) {
+        return toDisplayUnits(value) / scale;
+    }
+
+    // The value in steps of the shown precision; two values the clients would show the same are equal here
+    public long toDisplayUnits(double value) {
+        return Math.round(value * scale);
+    }
+}
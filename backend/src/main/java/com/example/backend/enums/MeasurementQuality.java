@@ -0,0 +1,7 @@
+package com.example.backend.enums;
+
+public enum MeasurementQuality {
+    NONE,       // no value since the store was cleared
+    GOOD,       // read from the device and converted with the channel's calibration
+    UNCERTAIN   // read from the device but converted with a fallback, e.g. a sensor at an unknown address
+}
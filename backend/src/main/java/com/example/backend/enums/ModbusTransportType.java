@@ -0,0 +1,7 @@
+package com.example.backend.enums;
+
+public enum ModbusTransportType {
+    MODBUS4J,  // blocking modbus4j master, one request at a time per endpoint
+    PIPELINED, // several requests in flight per socket, matched by MBAP transaction id
+    NIO        // like PIPELINED, but all endpoints are served by one selector thread
+}
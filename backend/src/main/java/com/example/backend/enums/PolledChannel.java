@@ -0,0 +1,13 @@
+package com.example.backend.enums;
+
+import com.example.backend.models.SubDevice;
+
+// A calculation type read from the bus; the interval can be overridden with modbus.poll.interval.<NAME>
+public interface PolledChannel {
+
+    String name();
+
+    int getStartAddress(SubDevice subDevice);
+
+    long getDefaultIntervalMillis();
+}
@@ -0,0 +1,8 @@
+package com.example.backend.enums;
+
+public enum PollingStatus {
+    STOPPED,   // no acquisition cycle scheduled
+    STARTING,  // results cleared, cycle being scheduled
+    RUNNING,   // acquisition cycle scheduled
+    STOPPING   // tasks being cancelled and pending updates flushed
+}
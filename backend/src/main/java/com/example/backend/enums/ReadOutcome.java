@@ -0,0 +1,9 @@
+package com.example.backend.enums;
+
+public enum ReadOutcome {
+    OK,
+    FAILED,        // device or transport error, counted by the circuit breaker
+    CIRCUIT_OPEN,  // skipped without touching the network
+    INTERRUPTED,   // the read was interrupted, e.g. on shutdown
+    LATE           // still running at the read deadline, the time is how long it had run by then
+}
@@ -0,0 +1,6 @@
+package com.example.backend.enums;
+
+public enum WordOrder {
+    HIGH_WORD_FIRST, // big endian across registers, e.g. energy and heating meters
+    LOW_WORD_FIRST   // least significant register at the lower address, e.g. the CHP operating hours
+}
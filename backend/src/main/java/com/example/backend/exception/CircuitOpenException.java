@@ -0,0 +1,7 @@
+package com.example.backend.exception;
+
+public class CircuitOpenException extends ModbusDeviceException {
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
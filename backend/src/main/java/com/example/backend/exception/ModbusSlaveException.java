@@ -0,0 +1,13 @@
+package com.example.backend.exception;
+
+import lombok.Getter;
+
+@Getter
+public class ModbusSlaveException extends RuntimeException {
+    private final byte exceptionCode;
+
+    public ModbusSlaveException(String message, byte exceptionCode) {
+        super(message);
+        this.exceptionCode = exceptionCode;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.backend.models;
+
+import com.example.backend.enums.PolledChannel;
+import com.example.backend.enums.ReadOutcome;
+import com.example.backend.enums.SubDeviceType;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// Decoded values of one acquisition cycle of a test station, keyed by start address per SubDevice.
+// Every reading carries the monotonic and wall-clock time at which its registers arrived and how long the read took.
+@Getter
+public class StationSnapshot {
+
+    public record Reading(ModbusDevice modbusDevice, SubDevice subDevice, Map<Integer, Long> values,
+                          long nanoTime, long timestampMillis, long readNanos) {
+
+        // Stamped when the registers arrived, before the reading is added to the snapshot
+        public static Reading of(ModbusDevice modbusDevice, SubDevice subDevice, Map<Integer, Long> values, long startedNanos) {
+            long now = System.nanoTime();
+            return new Reading(modbusDevice, subDevice, Collections.unmodifiableMap(values),
+                    now, System.currentTimeMillis(), now - startedNanos);
+        }
+    }
+
+    // How long the read of a SubDevice took, whatever its outcome
+    public record ReadTime(ModbusDevice modbusDevice, SubDevice subDevice, long readNanos, ReadOutcome outcome) {
+    }
+
+    private final int testStationId;
+    private final long tick;
+    private final long scheduledNanos;
+    private final long timestamp;
+    private final List<Reading> readings = new ArrayList<>();
+    private final List<ReadTime> readTimes = new ArrayList<>();
+    @Setter
+    private int lateEndpoints; // endpoints late at the read deadline or still busy with an earlier read, their missing SubDevices are absent
+
+    public StationSnapshot(int testStationId, long tick, long scheduledNanos) {
+        this.testStationId = testStationId;
+        this.tick = tick;
+        this.scheduledNanos = scheduledNanos;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public void add(Reading reading) {
+        if (!reading.values().isEmpty()) {
+            readings.add(reading);
+        }
+    }
+
+    public void addReadTime(ReadTime readTime) {
+        readTimes.add(readTime);
+    }
+
+    public List<Reading> getReadings(SubDeviceType type) {
+        return readings.stream().filter(reading -> reading.subDevice().getType() == type).toList();
+    }
+
+    // True if the channel was read on any SubDevice of the given type in this cycle
+    public boolean hasValue(SubDeviceType type, PolledChannel channel) {
+        return getTimestampMillis(type, channel) >= 0;
+    }
+
+    // Wall-clock time at which the channel was read in this cycle, -1 if it was not read
+    public long getTimestampMillis(SubDeviceType type, PolledChannel channel) {
+        for (Reading reading : readings) {
+            if (reading.subDevice().getType() == type && reading.values().containsKey(channel.getStartAddress(reading.subDevice()))) {
+                return reading.timestampMillis();
+            }
+        }
+        return -1L;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.backend.service.archive;
+
+import com.example.backend.enums.MeasurementChannel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only, memory-mapped archive of one polling session of a test station. Layout, all numbers big-endian:
+ * <pre>
+ * header   0..4095      magic "MBSARCH1", version, state (0 open, 1 closed), test station id, session start
+ *                       millis, tick millis, channel count, record bytes, record count, index count, then one
+ *                       32-byte ASCII name per channel; bit i of a record's mask and its i-th value are channel i
+ * index    4096..69631  4096 entries of (timestamp millis, record number), one every 256 records
+ * records  69632..      fixed width: tick, timestamp millis, mask of the channels read in the tick, one double
+ *                       per channel (the current value, also for channels not read in the tick)
+ * </pre>
+ * A record is written before the record count that covers it, so the count always points at complete records.
+ * The mapped pages belong to the operating system, a record survives the JVM as soon as it is copied; a file
+ * still in state open was not closed by the backend and holds the records up to its count. Data and header are
+ * flushed to the disk every FORCE_STRIDE records, also once the index is full, and on close; a chunk is flushed
+ * before the next one is mapped.
+ * <p>
+ * Not thread-safe; only used by the archive writer thread.
+ */
+final class SessionArchiveFile implements Closeable {
+
+    static final long MAGIC = 0x4D42_5341_5243_4831L; // "MBSARCH1"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 4096;
+    static final int INDEX_ENTRIES = 4096;
+    static final int INDEX_STRIDE = 256;
+    static final int FORCE_STRIDE = 256;
+    static final long DATA_OFFSET = HEADER_BYTES + INDEX_ENTRIES * 16L;
+    static final int CHANNEL_NAME_BYTES = 32;
+
+    private static final MeasurementChannel[] CHANNELS = MeasurementChannel.values();
+    private static final int STATE_OFFSET = 12;
+    private static final int RECORD_COUNT_OFFSET = 48;
+    private static final int INDEX_COUNT_OFFSET = 56;
+    private static final int CHANNEL_TABLE_OFFSET = 64;
+    private static final long CHUNK_BYTES = 1 << 20; // records are mapped a chunk at a time as the file grows
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int recordBytes;
+    private final long chunkRecords;
+    private MappedByteBuffer chunk;
+    private long chunkNumber = -1;
+    private long recordCount;
+    private int indexCount;
+
+    SessionArchiveFile(Path path, int testStationId, long sessionStartMillis, long tickMillis) throws IOException {
+        this.path = path;
+        this.recordBytes = 3 * Long.BYTES + CHANNELS.length * Double.BYTES;
+        this.chunkRecords = CHUNK_BYTES / recordBytes;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        header.putLong(0, MAGIC);
+        header.putInt(8, VERSION);
+        header.putInt(STATE_OFFSET, 0);
+        header.putInt(16, testStationId);
+        header.putLong(20, sessionStartMillis);
+        header.putLong(28, tickMillis);
+        header.putInt(36, CHANNELS.length);
+        header.putInt(40, recordBytes);
+        header.putLong(RECORD_COUNT_OFFSET, 0);
+        header.putInt(INDEX_COUNT_OFFSET, 0);
+        for (int index = 0; index < CHANNELS.length; index++) {
+            byte[] name = CHANNELS[index].name().getBytes(StandardCharsets.US_ASCII);
+            header.put(CHANNEL_TABLE_OFFSET + index * CHANNEL_NAME_BYTES, name, 0, Math.min(name.length, CHANNEL_NAME_BYTES));
+        }
+        header.force();
+    }
+
+    void append(long tick, long timestampMillis, long mask, double[] values) throws IOException {
+        long number = recordCount / chunkRecords;
+        if (number != chunkNumber) {
+            if (chunk != null) {
+                chunk.force(); // only the mapped chunk is forced later, its records must be on the disk before the count
+            }
+            chunk = channel.map(FileChannel.MapMode.READ_WRITE, DATA_OFFSET + number * chunkRecords * recordBytes,
+                    chunkRecords * recordBytes);
+            chunkNumber = number;
+        }
+        int position = (int) (recordCount % chunkRecords) * recordBytes;
+        chunk.putLong(position, tick);
+        chunk.putLong(position + 8, timestampMillis);
+        chunk.putLong(position + 16, mask);
+        for (int index = 0; index < CHANNELS.length; index++) {
+            chunk.putDouble(position + 24 + index * Double.BYTES, values[index]);
+        }
+        if (recordCount % INDEX_STRIDE == 0 && indexCount < INDEX_ENTRIES) {
+            header.putLong(HEADER_BYTES + indexCount * 16, timestampMillis);
+            header.putLong(HEADER_BYTES + indexCount * 16 + 8, recordCount);
+            header.putInt(INDEX_COUNT_OFFSET, ++indexCount);
+        }
+        if (recordCount % FORCE_STRIDE == 0) {
+            chunk.force(); // the record reaches the disk before the count that covers it
+            header.putLong(RECORD_COUNT_OFFSET, ++recordCount);
+            header.force();
+            return;
+        }
+        header.putLong(RECORD_COUNT_OFFSET, ++recordCount);
+    }
+
+    long getRecordCount() {
+        return recordCount;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    // Flushes everything, marks the file closed and cuts the unused rest of the last chunk
+    @Override
+    public void close() throws IOException {
+        try {
+            if (chunk != null) {
+                chunk.force();
+            }
+            header.putInt(STATE_OFFSET, 1);
+            header.force();
+            channel.truncate(DATA_OFFSET + recordCount * recordBytes);
+        } finally {
+            channel.close();
+        }
+    }
+}
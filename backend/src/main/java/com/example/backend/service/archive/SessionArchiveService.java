@@ -0,0 +1,173 @@
+package com.example.backend.service.archive;
+
+import com.example.backend.service.measurement.MeasurementStore;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Streams every acquisition cycle of a polling session into a {@link SessionArchiveFile} in
+ * measurement.archive.dir. The cycle only copies its values into a record inside its write section; opening,
+ * appending and closing run in order on the single archive writer thread, so the polling thread never touches
+ * the file. Archives last modified more than measurement.archive.retention-days ago are deleted whenever a session
+ * starts, 0 keeps them all.
+ */
+@Slf4j
+@Service
+public class SessionArchiveService {
+
+    private static final long CLOSE_ON_SHUTDOWN_MILLIS = 5000;
+
+    private final ExecutorService archiveExecutor;
+    private final Path directory;
+    private final boolean enabled;
+    private final long retentionMillis;
+    private final Map<Integer, SessionArchiveFile> files = new HashMap<>(); // only used by the writer thread
+
+    public SessionArchiveService(@Qualifier("archiveExecutor") ExecutorService archiveExecutor,
+                                 @Value("${measurement.archive.dir:archive}") Path directory,
+                                 @Value("${measurement.archive.enabled:true}") boolean enabled,
+                                 @Value("${measurement.archive.retention-days:30}") long retentionDays) {
+        if (retentionDays < 0) {
+            throw new IllegalArgumentException("measurement.archive.retention-days must not be negative: " + retentionDays);
+        }
+        this.archiveExecutor = archiveExecutor;
+        this.directory = directory;
+        this.enabled = enabled;
+        this.retentionMillis = TimeUnit.DAYS.toMillis(retentionDays);
+    }
+
+    // Opens the archive of the polling session that starts now; a file still open for the station is closed first
+    public void startSession(int testStationId, long tickMillis) {
+        long sessionStartMillis = System.currentTimeMillis();
+        submit(() -> {
+            closeFile(testStationId);
+            Path path = directory.resolve("station-" + testStationId + "-" + sessionStartMillis + ".bin");
+            try {
+                Files.createDirectories(directory);
+                deleteExpired(sessionStartMillis);
+                files.put(testStationId, new SessionArchiveFile(path, testStationId, sessionStartMillis, tickMillis));
+                log.info("Archiving test station {} to {}", testStationId, path);
+            } catch (IOException e) {
+                log.error("Could not open the archive {} of test station {}, the session is not archived", path, testStationId, e);
+            }
+        });
+    }
+
+    // Called by the acquisition cycle within its write section of the store with the time the tick was acquired;
+    // ticks without values are left out
+    public void record(int testStationId, long tick, long timestampMillis, MeasurementStore store) {
+        if (!enabled) {
+            return;
+        }
+        double[] values = new double[MeasurementStore.CHANNEL_COUNT];
+        long mask = store.copyCycleValues(values);
+        if (mask == 0) {
+            return;
+        }
+        submit(() -> {
+            SessionArchiveFile file = files.get(testStationId);
+            if (file == null) {
+                return;
+            }
+            try {
+                file.append(tick, timestampMillis, mask, values);
+            } catch (IOException e) {
+                log.error("Archive {} of test station {} failed, the rest of the session is not archived", file.getPath(), testStationId, e);
+                closeFile(testStationId);
+            }
+        });
+    }
+
+    public void endSession(int testStationId) {
+        submit(() -> closeFile(testStationId));
+    }
+
+    // Runs before the archive writer is shut down, it depends on it; closes the open files behind the queued records
+    @PreDestroy
+    public void closeAll() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Future<?> closed = archiveExecutor.submit(() -> {
+                for (Integer testStationId : new ArrayList<>(files.keySet())) {
+                    closeFile(testStationId);
+                }
+            });
+            closed.get(CLOSE_ON_SHUTDOWN_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException | ExecutionException | TimeoutException e) {
+            log.warn("Could not close the open archives on shutdown, they stay in state open", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while closing the open archives on shutdown");
+        }
+    }
+
+    private void submit(Runnable task) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            archiveExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Archive writer is shut down, dropping an archive task");
+        }
+    }
+
+    // Archives of earlier sessions only; the files still open belong to running sessions
+    private void deleteExpired(long nowMillis) {
+        if (retentionMillis == 0) {
+            return;
+        }
+        try (DirectoryStream<Path> archives = Files.newDirectoryStream(directory, "station-*.bin")) {
+            for (Path path : archives) {
+                if (nowMillis - Files.getLastModifiedTime(path).toMillis() <= retentionMillis || isOpen(path)) {
+                    continue;
+                }
+                Files.deleteIfExists(path);
+                log.info("Deleted archive {}, older than the retention", path);
+            }
+        } catch (IOException e) {
+            log.warn("Could not delete the expired archives in {}", directory, e);
+        }
+    }
+
+    private boolean isOpen(Path path) {
+        for (SessionArchiveFile file : files.values()) {
+            if (file.getPath().equals(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void closeFile(int testStationId) {
+        SessionArchiveFile file = files.remove(testStationId);
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+            log.info("Archive {} of test station {} closed with {} records", file.getPath(), testStationId, file.getRecordCount());
+        } catch (IOException e) {
+            log.error("Could not close the archive {} of test station {}", file.getPath(), testStationId, e);
+        }
+    }
+}
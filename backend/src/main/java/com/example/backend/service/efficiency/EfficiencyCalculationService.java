@@ -60,8 +60,8 @@ public class EfficiencyCalculationService {
 
 
     public void calculateElectricalEfficiency(int testStationId) {
-        Double electricalPower = energyService.getEnergyDifference().get();
-        Double gasPower = gasService.getGasPowerResult().get();
+        Double electricalPower = energyService.getResults(testStationId).getEnergyDifference().get();
+        Double gasPower = gasService.getResults(testStationId).getGasPowerResult().get();
         if (electricalPower.isNaN() || gasPower.isNaN()) {
             log.warn("Electrical power or gas power is NaN for testStationId: {}", testStationId);
             return;
@@ -84,8 +84,8 @@ public class EfficiencyCalculationService {
             return;
         }
         try {
-            Double thermalPower = heatingService.getHeatingDifference().get();
-            Double gasPower = gasService.getGasPowerResult().get();
+            Double thermalPower = heatingService.getResults(testStationId).getHeatingDifference().get();
+            Double gasPower = gasService.getResults(testStationId).getGasPowerResult().get();
 
             if (gasPower.isNaN() || thermalPower.isNaN()) {
                 log.warn("Thermal power or gas power is NaN for testStationId {}", testStationId);
@@ -105,9 +105,9 @@ public class EfficiencyCalculationService {
 
     public void calculateOverallEfficiency(int testStationId) {
         try {
-            Double electricalPower = energyService.getEnergyDifference().get();
-            Double gasPower = gasService.getGasPowerResult().get();
-            Double thermalPower = heatingService.getHeatingDifference().get();
+            Double electricalPower = energyService.getResults(testStationId).getEnergyDifference().get();
+            Double gasPower = gasService.getResults(testStationId).getGasPowerResult().get();
+            Double thermalPower = heatingService.getResults(testStationId).getHeatingDifference().get();
 
             if (electricalPower.isNaN() || gasPower.isNaN() || thermalPower.isNaN()) {
                 log.warn("One or more input values are NaN (electrical={}, gas={}, thermal={}) for testStationId {}",
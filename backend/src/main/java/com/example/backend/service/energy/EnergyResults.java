@@ -0,0 +1,11 @@
+package com.example.backend.service.energy;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Energy results of one test station derived during a measurement, the values themselves are in its MeasurementStore
+@Getter
+public class EnergyResults {
+  private final AtomicReference<Double> energyDifference = new AtomicReference<>(Double.NaN);
+}
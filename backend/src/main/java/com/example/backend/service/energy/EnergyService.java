@@ -2,18 +2,15 @@ package com.example.backend.service.energy;
 
 import com.example.backend.config.socket.WebSocketHandlerCustom;
 import com.example.backend.enums.EnergyCalculationType;
+import com.example.backend.enums.MeasurementChannel;
+import com.example.backend.enums.MeasurementQuality;
 import com.example.backend.enums.SubDeviceType;
-import com.example.backend.exception.EnergyProcessingException;
-import com.example.backend.exception.ModbusDeviceException;
-import com.example.backend.models.ModbusDevice;
+import com.example.backend.models.StationSnapshot;
 import com.example.backend.models.SubDevice;
-import com.example.backend.models.TestStation;
 import com.example.backend.service.gas.GasService;
-import com.example.backend.service.modbus.ModbusBitwiseService;
+import com.example.backend.service.measurement.MeasurementStore;
+import com.example.backend.service.measurement.MeasurementStoreRegistry;
 import com.example.backend.service.teststation.TestStationService;
-import com.serotonin.modbus4j.exception.ModbusTransportException;
-import com.serotonin.modbus4j.sero.messaging.TimeoutException;
-import com.serotonin.modbus4j.sero.messaging.WaitingRoomException;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -22,10 +19,11 @@ import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static com.example.backend.enums.EnergyCalculationType.COS_PHI;
 import static com.example.backend.enums.EnergyCalculationType.GENERATED_ENERGY;
+import static com.example.backend.enums.MeasurementChannel.ACTIVE_POWER;
+import static com.example.backend.enums.MeasurementChannel.APPARENT_POWER_RESERVED;
 
 
 @Slf4j
@@ -34,133 +32,91 @@ import static com.example.backend.enums.EnergyCalculationType.GENERATED_ENERGY;
 @Setter
 public class EnergyService {
 
-  private final Map<String, Object> initialEnergyResults = new ConcurrentHashMap<>();
-  private final Map<String, Object> currentEnergyResults = new ConcurrentHashMap<>();
-  private final Map<String, Object> lastEnergyResults = new ConcurrentHashMap<>();
-  private final AtomicReference<Double> energyDifference = new AtomicReference<>(Double.NaN);
-  private final AtomicReference<Long> activePower = new AtomicReference<>(null);
-  private final AtomicReference<Long> apparentPowerReserved = new AtomicReference<>(null);
+  private final Map<Integer, EnergyResults> results = new ConcurrentHashMap<>();
 
 
-  private final ModbusBitwiseService modbusBitwiseService;
   private final TestStationService testStationService;
   private final WebSocketHandlerCustom webSocketHandlerCustom;
   private final GasService gasService;
+  private final MeasurementStoreRegistry measurementStores;
 
 
   @Autowired
-  public EnergyService(ModbusBitwiseService modbusBitwiseService, TestStationService testStationService,
-                       WebSocketHandlerCustom webSocketHandlerCustom, GasService gasService) {
-    this.modbusBitwiseService = modbusBitwiseService;
+  public EnergyService(TestStationService testStationService, WebSocketHandlerCustom webSocketHandlerCustom,
+                       GasService gasService, MeasurementStoreRegistry measurementStores) {
     this.testStationService = testStationService;
     this.webSocketHandlerCustom = webSocketHandlerCustom;
     this.gasService = gasService;
+    this.measurementStores = measurementStores;
   }
 
-  private void formatAndProcess(int testStationId, EnergyCalculationType type, long rawValue, double divisor) {
-    double value = (double) rawValue / divisor;
-    String formattedResult = String.format(Locale.US, "%.2f", value);
-    processAndPushCurrentResults(testStationId, type.name(), formattedResult);
+  private void scaleAndProcess(int testStationId, EnergyCalculationType type, long rawValue, double divisor, long timestampMillis) {
+    processAndPushCurrentResults(testStationId, MeasurementChannel.of(type), rawValue / divisor, timestampMillis);
   }
 
 
-  public void processEnergyData(int testStationId) throws InterruptedException {
+  public void processEnergyData(StationSnapshot snapshot) {
+    int testStationId = snapshot.getTestStationId();
+    MeasurementStore store = measurementStores.get(testStationId);
     log.info("Starting energy data processing for TestStation ID: {}", testStationId);
-    TestStation testStation = testStationService.getTestStationById(testStationId);
-    if (testStation == null) {
-      log.warn("No TestStation found for ID: {}", testStationId);
-      return;
-    }
-    for (ModbusDevice modbusDevice : testStation.getModbusDevices()) {
-      for (SubDevice subDevice : modbusDevice.getSubDevices()) {
-        if (!subDevice.getType().equals(SubDeviceType.ENERGY)) {
-          log.debug("Skipping SubDevice with slaveId={}, startAddress={}, type={}",
-                  subDevice.getSlaveId(), subDevice.getStartAddress(), subDevice.getType());
-          continue;
-        }
-        List<EnergyCalculationType> energyCalculationTypes = subDevice.getEnergyCalculationTypes();
-        if (energyCalculationTypes == null) continue;
-        for (EnergyCalculationType energyCalculationType : energyCalculationTypes) {
-          int startAddress = energyCalculationType.getStartAddress(subDevice);
-          try {
-            log.debug("Calculating {} for SubDevice ID: {} at address {}", energyCalculationType.name(), subDevice.getType(), startAddress);
-            long result = modbusBitwiseService.bitwiseShiftCalculation(
-                    testStationId, startAddress, modbusDevice, subDevice);
-            log.info("result for start address {} is {}", startAddress, result);
-            switch (energyCalculationType) {
-              case GENERATED_ENERGY, CONSUMED_ENERGY, CURRENT ->
-                      formatAndProcess(testStationId, energyCalculationType, result, 1000.0);
-              case REACTIVE_POWER_BLIND_POWER ->
-                      formatAndProcess(testStationId, energyCalculationType, result, 10000.0);
-              case ACTIVE_POWER -> {
-                activePower.set(result);
-                formatAndProcess(testStationId, energyCalculationType, result, 10000.0);
-              }
-              case APPARENT_POWER_RESERVED -> {
-                apparentPowerReserved.set(result);
-                formatAndProcess(testStationId, energyCalculationType, result, 10000.0);
-              }
-              case FREQUENCY, VOLTAGE_L1_VOLTS, VOLTAGE_L2_VOLTS, VOLTAGE_L3_VOLTS ->
-                      formatAndProcess(testStationId, energyCalculationType, result, 10.0);
-              default -> log.warn("Unhandled EnergyCalculationType: {}", energyCalculationType);
-            }
-
-          } catch (InterruptedException ie) {
-            log.warn("Thread interrupted during energy data processing for testStationId {}", testStationId, ie);
-            Thread.currentThread().interrupt(); // preserve interrupt status
-            throw ie; // propagate InterruptedException
-          } catch (ModbusDeviceException | WaitingRoomException | TimeoutException |
-                   IllegalStateException | ModbusTransportException ex) {
-            log.error("Exception [{} - {}]: {}", energyCalculationType.name(), testStationId, ex.getMessage(), ex);
-            throw new EnergyProcessingException("Critical failure in energy processing", ex);
-          } catch (Exception ex) {
-            log.error("Unexpected exception [{} - {}]: {}", energyCalculationType.name(), testStationId, ex.getMessage(), ex);
-            Thread.currentThread().interrupt();
-            throw new InterruptedException("Thread interrupted due to exception: " + ex.getMessage());
-          }
-        }
-        // Now calculate cos_phi after switch
-        long ap = activePower.get();
-        long apr = apparentPowerReserved.get();
-
-        if (apr != 0 && ap != 0) {
-          double resultCosPhi = (double) ap / apr;
-          String formattedCosPhi = String.format(Locale.US, "%.2f", resultCosPhi);
-          log.info("Calculated cos_phi: {}", formattedCosPhi);
-          processAndPushCurrentResults(testStationId, COS_PHI.name(), formattedCosPhi);
-        } else {
-          log.warn("Apparent Power or Active Power is zero, cannot calculate cos_phi");
+    for (StationSnapshot.Reading reading : snapshot.getReadings(SubDeviceType.ENERGY)) {
+      SubDevice subDevice = reading.subDevice();
+      List<EnergyCalculationType> energyCalculationTypes = subDevice.getEnergyCalculationTypes();
+      if (energyCalculationTypes == null) continue;
+      for (EnergyCalculationType energyCalculationType : energyCalculationTypes) {
+        if (energyCalculationType == COS_PHI) continue;
+        int startAddress = energyCalculationType.getStartAddress(subDevice);
+        Long value = reading.values().get(startAddress);
+        if (value == null) continue; // not due this tick
+        long result = value;
+        log.info("result for start address {} is {}", startAddress, result);
+        long timestampMillis = reading.timestampMillis();
+        switch (energyCalculationType) {
+          case GENERATED_ENERGY, CONSUMED_ENERGY, CURRENT ->
+                  scaleAndProcess(testStationId, energyCalculationType, result, 1000.0, timestampMillis);
+          case REACTIVE_POWER_BLIND_POWER, ACTIVE_POWER, APPARENT_POWER_RESERVED ->
+                  scaleAndProcess(testStationId, energyCalculationType, result, 10000.0, timestampMillis);
+          case FREQUENCY, VOLTAGE_L1_VOLTS, VOLTAGE_L2_VOLTS, VOLTAGE_L3_VOLTS ->
+                  scaleAndProcess(testStationId, energyCalculationType, result, 10.0, timestampMillis);
+          default -> log.warn("Unhandled EnergyCalculationType: {}", energyCalculationType);
         }
       }
+      // Now calculate cos_phi after switch, once both powers have been read
+      if (!store.hasCurrent(ACTIVE_POWER) || !store.hasCurrent(APPARENT_POWER_RESERVED)) continue;
+      double ap = store.getCurrent(ACTIVE_POWER);
+      double apr = store.getCurrent(APPARENT_POWER_RESERVED);
+
+      if (apr != 0 && ap != 0) {
+        double resultCosPhi = ap / apr;
+        log.info("Calculated cos_phi: {}", resultCosPhi);
+        processAndPushCurrentResults(testStationId, MeasurementChannel.COS_PHI, resultCosPhi, reading.timestampMillis());
+      } else {
+        log.warn("Apparent Power or Active Power is zero, cannot calculate cos_phi");
+      }
     }
   }
 
 
-  private void processAndPushCurrentResults(int testStationId, String key, Object value) {
-    log.debug("Processing value: Key = {}, Value = {}, testStationId = {}", key, value, testStationId);
+  private void processAndPushCurrentResults(int testStationId, MeasurementChannel channel, double value, long timestampMillis) {
+    log.debug("Processing value: Key = {}, Value = {}, testStationId = {}", channel, value, testStationId);
+    MeasurementStore store = measurementStores.get(testStationId);
     try {
-      Object lastValue = lastEnergyResults.get(key); // at the beginning its null after value for the specific key
-      log.debug("🔎 Previous value for key '{}': {}", key, lastValue);
-      boolean valueChanged = (lastValue == null || !lastValue.equals(value));
-      log.debug("🗂 Before update - currentChpResults[{}]: {}", key, currentEnergyResults.get(key));
+      log.debug("🔎 Previous value for key '{}': {}", channel, store.getLast(channel));
+      store.put(channel, value, timestampMillis, MeasurementQuality.GOOD);
 
-      currentEnergyResults.put(key, value);
-      log.debug("📌 After update - currentChpResults[{}]: {}", key, currentEnergyResults.get(key));
-
-      if (valueChanged) { // true means lastEnergyResults empty or the value differs
-        lastEnergyResults.put(key, value);
+      if (store.publishIfChanged(channel)) { // true if nothing was pushed yet, the value left its deadband or the heartbeat is due
         Map<String, Object> update = new LinkedHashMap<>();
-        update.put(key, value);
+        update.put(channel.name(), channel.format(value));
         update.put("testStationId", testStationId);
         log.debug("✅ Value changed, enqueuing update: {}", update);
         if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
           webSocketHandlerCustom.enqueueUpdate(update);
         }
       } else {
-        log.debug("Value did not change, skipping push for key: {}, testStationId: {}", key, testStationId);
+        log.debug("Value did not change, skipping push for key: {}, testStationId: {}", channel, testStationId);
       }
     } catch (Exception e) {
-      log.error("Unexpected error in energy  processAndPush for key: {}, testStationId: {} - {}", key, testStationId, e.getMessage(), e);
+      log.error("Unexpected error in energy  processAndPush for key: {}, testStationId: {} - {}", channel, testStationId, e.getMessage(), e);
     }
   }
 
@@ -168,9 +124,11 @@ public class EnergyService {
     log.info("Calculating energy difference for testStationId: {}", testStationId);
     log.info("Waiting for gasService to populate first results before calculating energy difference for testStationId: {}", testStationId);
 
-    if (!gasService.getIsInitialResultsPopulated().get()) {
+    if (!gasService.getResults(testStationId).getIsInitialResultsPopulated().get()) {
       return;
     }
+    EnergyResults stationResults = getResults(testStationId);
+    MeasurementStore store = measurementStores.get(testStationId);
     try {
       List<SubDevice> energySubDevices = testStationService.getSubDevicesByType(testStationId, SubDeviceType.ENERGY);
 
@@ -192,33 +150,27 @@ public class EnergyService {
           if (type != GENERATED_ENERGY) continue;
 
           String key = type.name();
-          Object current = currentEnergyResults.get(key);
-          Object first = initialEnergyResults.get(key);
-
-          if (current == null || first == null || current.equals(first)) continue;
+          MeasurementChannel channel = MeasurementChannel.of(type);
+          if (!store.hasCurrent(channel) || !store.hasInitial(channel)) continue;
 
-          try {
-            double currentVal = parseDouble(current);
-            double firstVal = parseDouble(first);
-            double diff = currentVal - firstVal;
+          double currentVal = store.getCurrent(channel);
+          double firstVal = store.getInitial(channel);
+          if (channel.toDisplayUnits(currentVal) == channel.toDisplayUnits(firstVal)) continue;
 
-            log.info("Current [{}]: {}, First [{}]: {}, Difference: {}", key, currentVal, key, firstVal, diff);
+          double diff = currentVal - firstVal;
+          log.info("Current [{}]: {}, First [{}]: {}, Difference: {}", key, currentVal, key, firstVal, diff);
 
-            if (!Double.isNaN(diff) && !Double.isInfinite(diff)) {
-              energyDifference.set(diff);
-            }
-
-            Map<String, Object> update = new LinkedHashMap<>();
-            update.put(key, String.format(Locale.US, "%.2f", energyDifference.get()));
-            update.put("testStationId", testStationId);
-            update.put("difference", key);
+          if (!Double.isNaN(diff) && !Double.isInfinite(diff)) {
+            stationResults.getEnergyDifference().set(diff);
+          }
 
-            if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
-              webSocketHandlerCustom.enqueueUpdate(update);
-            }
+          Map<String, Object> update = new LinkedHashMap<>();
+          update.put(key, String.format(Locale.US, "%.2f", stationResults.getEnergyDifference().get()));
+          update.put("testStationId", testStationId);
+          update.put("difference", key);
 
-          } catch (NumberFormatException nfe) {
-            log.error("Invalid number format for key {}: {}", key, nfe.getMessage(), nfe);
+          if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
+            webSocketHandlerCustom.enqueueUpdate(update);
           }
         }
       }
@@ -230,31 +182,12 @@ public class EnergyService {
   }
 
 
-
-  private double parseDouble(Object value) throws NumberFormatException {
-    return (value instanceof Number) ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
-  }
-
-
-  public synchronized Map<String, Object> getStartEnergyResults(int testStationId) {
-    log.debug("Saving current energy results as start results for testStationId: {}", testStationId);
-    initialEnergyResults.putAll(currentEnergyResults);
-    return new HashMap<>(initialEnergyResults);  // return a copy
+  public EnergyResults getResults(int testStationId) {
+    return results.computeIfAbsent(testStationId, id -> new EnergyResults());
   }
 
-  public Map<String, Object> getLastEnergyResults(int testStationId) {
-    log.debug("Fetching last energy results for testStationId: {}", testStationId);
-    return new HashMap<>(lastEnergyResults);  // return a safe copy, no sync needed
-  }
-
-
-  public synchronized void clearEnergyResults() {
-    initialEnergyResults.clear();
-    currentEnergyResults.clear();
-    lastEnergyResults.clear();
-    energyDifference.set(Double.NaN);
-    activePower.set(null);
-    apparentPowerReserved.set(null);
+  public void clearEnergyResults(int testStationId) {
+    results.remove(testStationId);
+    measurementStores.get(testStationId).clear(SubDeviceType.ENERGY);
   }
 }
-
@@ -0,0 +1,25 @@
+package com.example.backend.service.gas;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Gas results derived during a measurement and measurement progress of one test station,
+// the values themselves are in its MeasurementStore
+@Getter
+@Setter
+public class GasResults {
+    private final AtomicReference<Double> gasDifference = new AtomicReference<>(Double.NaN);
+    private final AtomicReference<Double> gasPowerResult = new AtomicReference<>(Double.NaN);
+    private volatile double gasPressure = Double.NaN; // absolute, the GAS_PRESSURE channel holds it minus ambient
+    private volatile double previousGasMeter = Double.NaN; // meter reading the last difference step was counted at
+
+    private final AtomicBoolean isInitialResultsPopulated = new AtomicBoolean(false);
+    // Completed together with isInitialResultsPopulated, cancelled when the measurement is stopped or the results cleared
+    private final CompletableFuture<Void> initialResultsReady = new CompletableFuture<>();
+    private final AtomicBoolean shouldStop = new AtomicBoolean(false);
+    private volatile long timestampNow = -1L;
+}
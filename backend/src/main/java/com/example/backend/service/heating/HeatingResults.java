@@ -0,0 +1,11 @@
+package com.example.backend.service.heating;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Heating results of one test station derived during a measurement, the values themselves are in its MeasurementStore
+@Getter
+public class HeatingResults {
+  private final AtomicReference<Double> heatingDifference = new AtomicReference<>(Double.NaN);
+}
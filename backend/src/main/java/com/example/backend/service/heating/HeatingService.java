@@ -2,18 +2,16 @@ package com.example.backend.service.heating;
 
 import com.example.backend.config.socket.WebSocketHandlerCustom;
 import com.example.backend.enums.HeatingCalculationType;
+import com.example.backend.enums.MeasurementChannel;
+import com.example.backend.enums.MeasurementQuality;
 import com.example.backend.enums.SubDeviceType;
-import com.example.backend.exception.HeatingProcessingException;
-import com.example.backend.exception.ModbusDeviceException;
-import com.example.backend.models.ModbusDevice;
+import com.example.backend.models.StationSnapshot;
 import com.example.backend.models.SubDevice;
 import com.example.backend.models.TestStation;
 import com.example.backend.service.gas.GasService;
-import com.example.backend.service.modbus.ModbusBitwiseService;
+import com.example.backend.service.measurement.MeasurementStore;
+import com.example.backend.service.measurement.MeasurementStoreRegistry;
 import com.example.backend.service.teststation.TestStationService;
-import com.serotonin.modbus4j.exception.ModbusTransportException;
-import com.serotonin.modbus4j.sero.messaging.TimeoutException;
-import com.serotonin.modbus4j.sero.messaging.WaitingRoomException;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -22,7 +20,6 @@ import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static com.example.backend.enums.HeatingCalculationType.GENERATED_ENERGY_HEATING;
 
@@ -32,79 +29,56 @@ import static com.example.backend.enums.HeatingCalculationType.GENERATED_ENERGY_
 @Getter
 @Setter
 public class HeatingService {
-  private final Map<String, Object> initialHeatingResults = new ConcurrentHashMap<>();
-  private final Map<String, Object> currentHeatingResults = new ConcurrentHashMap<>();
-  private final Map<String, Object> lastHeatingResults = new ConcurrentHashMap<>();
-  private final AtomicReference<Double> heatingDifference = new AtomicReference<>(Double.NaN);
+  private final Map<Integer, HeatingResults> results = new ConcurrentHashMap<>();
 
-  private final ModbusBitwiseService modbusBitwiseService;
   private final TestStationService testStationService;
   private final WebSocketHandlerCustom webSocketHandlerCustom;
   private final GasService gasService;
+  private final MeasurementStoreRegistry measurementStores;
 
   @Autowired
-  public HeatingService(WebSocketHandlerCustom webSocketHandlerCustom, ModbusBitwiseService modbusBitwiseService, TestStationService testStationService, GasService gasService) {
+  public HeatingService(WebSocketHandlerCustom webSocketHandlerCustom, TestStationService testStationService, GasService gasService,
+                        MeasurementStoreRegistry measurementStores) {
     this.webSocketHandlerCustom = webSocketHandlerCustom;
-    this.modbusBitwiseService = modbusBitwiseService;
     this.testStationService = testStationService;
     this.gasService = gasService;
+    this.measurementStores = measurementStores;
   }
 
-  private void formatAndProcess(int testStationId, HeatingCalculationType type, long rawValue, double divisor) {
-    double value = (double) rawValue / divisor;
-    String formattedResult = String.format(Locale.US, "%.2f", value);
-    processAndPushCurrentResults(testStationId, type.name(), formattedResult);
+  private void scaleAndProcess(int testStationId, HeatingCalculationType type, long rawValue, double divisor, long timestampMillis) {
+    processAndPushCurrentResults(testStationId, MeasurementChannel.of(type), rawValue / divisor, timestampMillis);
   }
 
 
-  public void processHeatingData(int testStationId) throws InterruptedException {
-    if (hasHeatingSubDevice(testStationId)) {
-      log.info("No HEATING subdevice found for testStationId: {}. Skipping processHeatingData.", testStationId);
+  public void processHeatingData(StationSnapshot snapshot) {
+    int testStationId = snapshot.getTestStationId();
+    List<StationSnapshot.Reading> readings = snapshot.getReadings(SubDeviceType.HEATING);
+    if (readings.isEmpty()) {
+      log.debug("No HEATING values in this cycle for testStationId: {}. Skipping processHeatingData.", testStationId);
       return;
     }
 
     log.info("Starting heating data processing for TestStation ID: {}", testStationId);
-    TestStation testStation = testStationService.getTestStationById(testStationId);
-    if (testStation == null) {
-      log.warn("No TestStation found for testStationId: {}", testStationId);
-      return;
-    }
-
-    for (ModbusDevice modbusDevice : testStation.getModbusDevices()) {
-      for (SubDevice subDevice : modbusDevice.getSubDevices()) {
-        if (!SubDeviceType.HEATING.equals(subDevice.getType())) {
-          log.debug("Skipping SubDevice of type {}", subDevice.getType());
-          continue;
-        }
-
-        List<HeatingCalculationType> heatingCalculationTypes = subDevice.getHeatingCalculationTypes();
-        if (heatingCalculationTypes == null) continue;
-        for (HeatingCalculationType heatingCalculationType : heatingCalculationTypes) {
-          int startAddress = heatingCalculationType.getStartAddress(subDevice);
-          try {
-            log.debug("Calculating {} for SubDevice ID: {} at address {}", heatingCalculationType.name(), subDevice.getType(), startAddress);
-            long result = modbusBitwiseService.bitwiseShiftCalculation(testStationId, startAddress, modbusDevice, subDevice);
-            log.info("result for start address {} is {}", startAddress, result);
-            switch (heatingCalculationType) {
-              case TEMPERATURE_DIFFERENCE ->
-                      formatAndProcess(testStationId, heatingCalculationType, result, 100.0);
-              case TOTAL_VOLUME, POWER ->
-                      formatAndProcess(testStationId, heatingCalculationType, result, 1000.0);
-              case VOLUME_FLOW -> formatAndProcess(testStationId, heatingCalculationType, result, 60.0);
-              case GENERATED_ENERGY_HEATING, RETURN_TEMPERATURE, SUPPLY_TEMPERATURE ->
-                      processAndPushCurrentResults(testStationId, heatingCalculationType.name(), result);
-              default -> log.warn("Unhandled HeatingCalculationType: {}", heatingCalculationType);
-            }
-          } catch (ModbusDeviceException | WaitingRoomException | TimeoutException | IllegalStateException |
-                   ModbusTransportException ex) {
-            log.error("Exception [{} - {}]: {}", heatingCalculationType.name(), testStationId, ex.getMessage(), ex);
-            Thread.currentThread().interrupt();
-            throw new HeatingProcessingException("Critical failure in energy processing", ex);
-          } catch (Exception ex) {
-            log.error("Unexpected exception [{} - {}]: {}", heatingCalculationType.name(), testStationId, ex.getMessage(), ex);
-            Thread.currentThread().interrupt();
-            throw new InterruptedException("Thread interrupted due to exception: " + ex.getMessage());
-          }
+    for (StationSnapshot.Reading reading : readings) {
+      SubDevice subDevice = reading.subDevice();
+      List<HeatingCalculationType> heatingCalculationTypes = subDevice.getHeatingCalculationTypes();
+      if (heatingCalculationTypes == null) continue;
+      for (HeatingCalculationType heatingCalculationType : heatingCalculationTypes) {
+        int startAddress = heatingCalculationType.getStartAddress(subDevice);
+        Long value = reading.values().get(startAddress);
+        if (value == null) continue; // not due this tick
+        long result = value;
+        log.info("result for start address {} is {}", startAddress, result);
+        long timestampMillis = reading.timestampMillis();
+        switch (heatingCalculationType) {
+          case TEMPERATURE_DIFFERENCE ->
+                  scaleAndProcess(testStationId, heatingCalculationType, result, 100.0, timestampMillis);
+          case TOTAL_VOLUME, POWER ->
+                  scaleAndProcess(testStationId, heatingCalculationType, result, 1000.0, timestampMillis);
+          case VOLUME_FLOW -> scaleAndProcess(testStationId, heatingCalculationType, result, 60.0, timestampMillis);
+          case GENERATED_ENERGY_HEATING, RETURN_TEMPERATURE, SUPPLY_TEMPERATURE ->
+                  processAndPushCurrentResults(testStationId, MeasurementChannel.of(heatingCalculationType), result, timestampMillis);
+          default -> log.warn("Unhandled HeatingCalculationType: {}", heatingCalculationType);
         }
       }
     }
@@ -118,33 +92,26 @@ public class HeatingService {
   }
 
 
-  public void processAndPushCurrentResults(int testStationId, String key, Object value) {
-    log.debug("Processing value: Key = {}, Value = {}, testStationId = {}", key, value, testStationId);
+  public void processAndPushCurrentResults(int testStationId, MeasurementChannel channel, double value, long timestampMillis) {
+    log.debug("Processing value: Key = {}, Value = {}, testStationId = {}", channel, value, testStationId);
+    MeasurementStore store = measurementStores.get(testStationId);
     try {
-      Object lastValue = lastHeatingResults.get(key);
-      log.debug("🔎 Previous value for key '{}': {}", key, lastValue);
-
-      boolean valueChanged = (lastValue == null || !lastValue.equals(value));
-
-      log.debug("🗂 Before update - currentChpResults[{}]: {}", key, currentHeatingResults.get(key));
+      log.debug("🔎 Previous value for key '{}': {}", channel, store.getLast(channel));
+      store.put(channel, value, timestampMillis, MeasurementQuality.GOOD);
 
-      currentHeatingResults.put(key, value);
-      log.debug("📌 After update - currentChpResults[{}]: {}", key, currentHeatingResults.get(key));
-
-      if (valueChanged) {
-        lastHeatingResults.put(key, value);
+      if (store.publishIfChanged(channel)) {
         Map<String, Object> update = new LinkedHashMap<>();
-        update.put(key, value);
+        update.put(channel.name(), channel.format(value));
         update.put("testStationId", testStationId);
 
         if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
           webSocketHandlerCustom.enqueueUpdate(update);
         }
       } else {
-        log.debug("Heating value did not change, skipping push for key: {}, testStationId: {}", key, testStationId);
+        log.debug("Heating value did not change, skipping push for key: {}, testStationId: {}", channel, testStationId);
       }
     } catch (Exception e) {
-      log.error("Unexpected error in heating processAndPush for key: {}, testStationId: {} - {}", key, testStationId, e.getMessage(), e);
+      log.error("Unexpected error in heating processAndPush for key: {}, testStationId: {} - {}", channel, testStationId, e.getMessage(), e);
     }
   }
 
@@ -152,9 +119,11 @@ public class HeatingService {
   public void calculateAndPushHeatingDifference(int testStationId) throws InterruptedException {
     log.info("Calculating heating difference for testStationId: {}", testStationId);
     log.info("Waiting for gasService to populate first results before calculating heating difference for testStationId: {}", testStationId);
-    if (!gasService.getIsInitialResultsPopulated().get()) {
+    if (!gasService.getResults(testStationId).getIsInitialResultsPopulated().get()) {
       return;
     }
+    HeatingResults stationResults = getResults(testStationId);
+    MeasurementStore store = measurementStores.get(testStationId);
 
     try {
       List<SubDevice> heatingSubDevices = testStationService.getSubDevicesByType(testStationId, SubDeviceType.HEATING);
@@ -176,39 +145,27 @@ public class HeatingService {
           if (type != GENERATED_ENERGY_HEATING) continue;
 
           String key = type.name();
-          Object current = currentHeatingResults.get(key);
-          Object first = initialHeatingResults.get(key);
-
-
-          if (current == null || first == null || current.equals(first)) continue;
+          MeasurementChannel channel = MeasurementChannel.of(type);
+          if (!store.hasCurrent(channel) || !store.hasInitial(channel)) continue;
 
+          double currentVal = store.getCurrent(channel);
+          double firstVal = store.getInitial(channel);
+          if (channel.toDisplayUnits(currentVal) == channel.toDisplayUnits(firstVal)) continue;
 
-          if (currentHeatingResults.get(key) != null && initialHeatingResults.get(key) != null) {
-
-            try {
-              double currentVal = parseDouble(current);
-              double firstVal = parseDouble(first);
-              double diff = currentVal - firstVal;
-
-
-              log.info("Current [{}]: {}, First [{}]: {}, Difference: {}", key, currentVal, key, firstVal, diff);
-              if (!Double.isNaN(diff) && !Double.isInfinite(diff)) {
-                heatingDifference.set(diff);
-              }
-
+          double diff = currentVal - firstVal;
+          log.info("Current [{}]: {}, First [{}]: {}, Difference: {}", key, currentVal, key, firstVal, diff);
+          if (!Double.isNaN(diff) && !Double.isInfinite(diff)) {
+            stationResults.getHeatingDifference().set(diff);
+          }
 
-              Map<String, Object> update = new LinkedHashMap<>();
-              update.put(key, String.format(Locale.US, "%.2f", heatingDifference.get()));
-              update.put("testStationId", testStationId);
-              update.put("difference", key);
 
-              if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
-                webSocketHandlerCustom.enqueueUpdate(update);
-              }
+          Map<String, Object> update = new LinkedHashMap<>();
+          update.put(key, String.format(Locale.US, "%.2f", stationResults.getHeatingDifference().get()));
+          update.put("testStationId", testStationId);
+          update.put("difference", key);
 
-            } catch (NumberFormatException nfe) {
-              log.error("Invalid number format for key {}: {}", key, nfe.getMessage(), nfe);
-            }
+          if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
+            webSocketHandlerCustom.enqueueUpdate(update);
           }
         }
       }
@@ -220,28 +177,12 @@ public class HeatingService {
   }
 
 
-  private double parseDouble(Object value) throws NumberFormatException {
-    return (value instanceof Number) ? ((Number) value).doubleValue() : Double.parseDouble(value.toString());
-  }
-
-
-  public synchronized Map<String, Object> getStartHeatingResults(int testStationId) {
-    log.debug("Saving current heating results as start results for testStationId: {}", testStationId);
-    initialHeatingResults.putAll(currentHeatingResults);
-    return new HashMap<>(initialHeatingResults);
-  }
-
-  public Map<String, Object> getLastHeatingResults(int testStationId) {
-    log.debug("Fetching last heating results for testStationId: {}", testStationId);
-    return new HashMap<>(lastHeatingResults);
+  public HeatingResults getResults(int testStationId) {
+    return results.computeIfAbsent(testStationId, id -> new HeatingResults());
   }
 
-  public synchronized void clearHeatingResults() {
-    initialHeatingResults.clear();
-    currentHeatingResults.clear();
-    lastHeatingResults.clear();
-    heatingDifference.set(Double.NaN);
+  public void clearHeatingResults(int testStationId) {
+    results.remove(testStationId);
+    measurementStores.get(testStationId).clear(SubDeviceType.HEATING);
   }
 }
-
-
@@ -0,0 +1,55 @@
+package com.example.backend.service.measurement;
+
+import com.example.backend.enums.MeasurementChannel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * When a channel's value is pushed again. A new value is pushed if it moved further from the last pushed one than
+ * the channel's deadband, the larger of an absolute band in the channel's unit and a band relative to the last
+ * pushed value. Defaults come from {@link MeasurementChannel}, overridable with
+ * measurement.deadband.absolute.NAME and measurement.deadband.relative.NAME (a fraction, 0.01 is 1 %). A value
+ * that stayed within its band is still pushed once measurement.heartbeat-ms passed since the last push, 0 disables
+ * the heartbeat.
+ */
+@Slf4j
+@Component
+public class ChannelDeadbands {
+
+    private final double[] absolute = new double[ChannelPlane.SIZE];
+    private final double[] relative = new double[ChannelPlane.SIZE];
+    private final long heartbeatMillis;
+
+    public ChannelDeadbands(Environment environment, @Value("${measurement.heartbeat-ms:10000}") long heartbeatMillis) {
+        if (heartbeatMillis < 0) {
+            throw new IllegalArgumentException("measurement.heartbeat-ms must not be negative: " + heartbeatMillis);
+        }
+        for (MeasurementChannel channel : MeasurementChannel.values()) {
+            absolute[channel.ordinal()] = getBand(environment, "measurement.deadband.absolute.", channel, channel.getDefaultAbsoluteDeadband());
+            relative[channel.ordinal()] = getBand(environment, "measurement.deadband.relative.", channel, channel.getDefaultRelativeDeadband());
+        }
+        this.heartbeatMillis = heartbeatMillis;
+        log.info("Heartbeat of unchanged channels: {} ms", heartbeatMillis);
+    }
+
+    // True if the value is no further from the last pushed one than the channel's deadband
+    boolean isWithin(int index, double pushed, double value) {
+        double band = Math.max(absolute[index], relative[index] * Math.abs(pushed));
+        return Math.abs(value - pushed) <= band;
+    }
+
+    // True if a value read at readMillis is pushed regardless of its deadband
+    boolean isHeartbeatDue(long pushedReadMillis, long readMillis) {
+        return heartbeatMillis > 0 && readMillis - pushedReadMillis >= heartbeatMillis;
+    }
+
+    private static double getBand(Environment environment, String prefix, MeasurementChannel channel, double defaultBand) {
+        double band = environment.getProperty(prefix + channel.name(), Double.class, defaultBand);
+        if (!(band >= 0)) {
+            throw new IllegalArgumentException("Deadband " + prefix + channel.name() + " must not be negative: " + band);
+        }
+        return band;
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.backend.service.measurement;
+
+/**
+ * History of one channel during a polling session: the latest samples at full rate in a ring of primitive
+ * arrays, plus min/max/mean buckets of 10 s and 1 min. Read times are kept as milliseconds since the session
+ * start, so a sample costs 12 bytes. The ring is sized for the session at the channel's poll interval; if it
+ * wraps anyway the oldest samples are overwritten, while the buckets keep covering the whole session.
+ * <p>
+ * Not thread-safe on its own: written in the store's write sections and read under its sequence lock.
+ */
+final class ChannelHistory {
+
+    private static final int SAMPLE_BYTES = Double.BYTES + Integer.BYTES;
+
+    private final long sessionStartMillis;
+    private final double[] values;
+    private final int[] offsets; // non-decreasing, which is what the range searches rely on
+    private final BucketSeries tenSeconds;
+    private final BucketSeries oneMinute;
+    private long appended;
+    private int lastOffset;
+
+    ChannelHistory(long sessionStartMillis, long sessionMillis, int capacity) {
+        this.sessionStartMillis = sessionStartMillis;
+        this.values = new double[capacity];
+        this.offsets = new int[capacity];
+        // A channel that is not polled gets no buckets either
+        this.tenSeconds = new BucketSeries(10_000, capacity == 0 ? 0 : bucketCapacity(sessionMillis, 10_000));
+        this.oneMinute = new BucketSeries(60_000, capacity == 0 ? 0 : bucketCapacity(sessionMillis, 60_000));
+    }
+
+    void append(long timestampMillis, double value) {
+        if (values.length == 0 || Double.isNaN(value)) {
+            return;
+        }
+        // Readings of parallel endpoints may arrive slightly out of order, the history stays sorted
+        long offset = Math.max(timestampMillis - sessionStartMillis, lastOffset);
+        if (offset > Integer.MAX_VALUE) {
+            return;
+        }
+        int slot = (int) (appended % values.length);
+        values[slot] = value;
+        offsets[slot] = (int) offset;
+        lastOffset = (int) offset;
+        appended++;
+        tenSeconds.add((int) offset, value);
+        oneMinute.add((int) offset, value);
+    }
+
+    // Samples read between fromMillis and toMillis (both inclusive) that are still in the ring
+    HistorySamples samples(long fromMillis, long toMillis) {
+        long oldest = Math.max(0, appended - values.length);
+        if (appended == oldest || toMillis < sessionStartMillis || fromMillis > toMillis) {
+            return HistorySamples.EMPTY;
+        }
+        long first = firstIndexAfter(oldest, appended, toOffset(fromMillis) - 1);
+        long end = firstIndexAfter(first, appended, toOffset(toMillis));
+        int count = (int) (end - first);
+        long[] timestamps = new long[count];
+        double[] copy = new double[count];
+        for (int i = 0; i < count; i++) {
+            int slot = (int) ((first + i) % values.length);
+            timestamps[i] = sessionStartMillis + offsets[slot];
+            copy[i] = values[slot];
+        }
+        return new HistorySamples(timestamps, copy);
+    }
+
+    HistoryBuckets buckets(int bucketMillis, long fromMillis, long toMillis) {
+        BucketSeries series = bucketMillis == tenSeconds.bucketMillis ? tenSeconds : oneMinute;
+        if (toMillis < sessionStartMillis || fromMillis > toMillis) {
+            return HistoryBuckets.empty(series.bucketMillis);
+        }
+        return series.range(sessionStartMillis, toOffset(fromMillis), toOffset(toMillis));
+    }
+
+    long getMemoryBytes() {
+        return (long) values.length * SAMPLE_BYTES + tenSeconds.getMemoryBytes() + oneMinute.getMemoryBytes();
+    }
+
+    private long toOffset(long timestampMillis) {
+        return Math.clamp(timestampMillis - sessionStartMillis, 0, Integer.MAX_VALUE);
+    }
+
+    // First logical index in [from, to) whose offset is greater than the given one, to if there is none
+    private long firstIndexAfter(long from, long to, long offset) {
+        long low = from;
+        long high = to;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (offsets[(int) (mid % offsets.length)] > offset) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private static int bucketCapacity(long sessionMillis, int bucketMillis) {
+        // One more for the bucket the session starts in the middle of
+        return (int) Math.min(Integer.MAX_VALUE - 1, Math.ceilDiv(sessionMillis, bucketMillis)) + 1;
+    }
+
+    // Ring of buckets, each covering bucketMillis of the session; opened by the first sample that falls into it
+    private static final class BucketSeries {
+
+        private static final int BUCKET_BYTES = Long.BYTES + 3 * Double.BYTES + Integer.BYTES;
+
+        private final int bucketMillis;
+        private final long[] numbers; // offset / bucketMillis
+        private final double[] min;
+        private final double[] max;
+        private final double[] sum;
+        private final int[] count;
+        private long opened;
+
+        BucketSeries(int bucketMillis, int capacity) {
+            this.bucketMillis = bucketMillis;
+            this.numbers = new long[capacity];
+            this.min = new double[capacity];
+            this.max = new double[capacity];
+            this.sum = new double[capacity];
+            this.count = new int[capacity];
+        }
+
+        void add(int offset, double value) {
+            if (numbers.length == 0) {
+                return;
+            }
+            long number = offset / bucketMillis;
+            int slot = (int) ((opened - 1) % numbers.length);
+            if (opened == 0 || numbers[slot] != number) {
+                slot = (int) (opened % numbers.length);
+                numbers[slot] = number;
+                min[slot] = value;
+                max[slot] = value;
+                sum[slot] = value;
+                count[slot] = 1;
+                opened++;
+                return;
+            }
+            min[slot] = Math.min(min[slot], value);
+            max[slot] = Math.max(max[slot], value);
+            sum[slot] += value;
+            count[slot]++;
+        }
+
+        // Buckets overlapping [fromOffset, toOffset]
+        HistoryBuckets range(long sessionStartMillis, long fromOffset, long toOffset) {
+            long oldest = Math.max(0, opened - numbers.length);
+            long first = firstIndexFrom(oldest, opened, fromOffset / bucketMillis);
+            long end = firstIndexFrom(first, opened, toOffset / bucketMillis + 1);
+            int size = (int) (end - first);
+            long[] starts = new long[size];
+            double[] mins = new double[size];
+            double[] maxs = new double[size];
+            double[] means = new double[size];
+            int[] counts = new int[size];
+            for (int i = 0; i < size; i++) {
+                int slot = (int) ((first + i) % numbers.length);
+                starts[i] = sessionStartMillis + numbers[slot] * bucketMillis;
+                mins[i] = min[slot];
+                maxs[i] = max[slot];
+                means[i] = sum[slot] / count[slot];
+                counts[i] = count[slot];
+            }
+            return new HistoryBuckets(bucketMillis, starts, mins, maxs, means, counts);
+        }
+
+        long getMemoryBytes() {
+            return (long) numbers.length * BUCKET_BYTES;
+        }
+
+        // First logical index in [from, to) whose bucket number is at least the given one, to if there is none
+        private long firstIndexFrom(long from, long to, long number) {
+            long low = from;
+            long high = to;
+            while (low < high) {
+                long mid = (low + high) >>> 1;
+                if (numbers[(int) (mid % numbers.length)] >= number) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.backend.service.measurement;
+
+import com.example.backend.enums.MeasurementChannel;
+import com.example.backend.enums.MeasurementQuality;
+
+import java.util.Arrays;
+
+// One value per MeasurementChannel with its read time and quality, indexed by the channel's ordinal
+final class ChannelPlane {
+
+    static final int SIZE = MeasurementChannel.values().length;
+    private static final byte NONE = (byte) MeasurementQuality.NONE.ordinal();
+
+    final double[] values = new double[SIZE];
+    final long[] timestamps = new long[SIZE];
+    final byte[] quality = new byte[SIZE];
+
+    ChannelPlane() {
+        Arrays.fill(values, Double.NaN);
+        Arrays.fill(timestamps, -1L);
+    }
+
+    boolean has(int index) {
+        return quality[index] != NONE;
+    }
+
+    void set(int index, double value, long timestampMillis, byte quality) {
+        values[index] = value;
+        timestamps[index] = timestampMillis;
+        this.quality[index] = quality;
+    }
+
+    void copy(ChannelPlane from, int index) {
+        set(index, from.values[index], from.timestamps[index], from.quality[index]);
+    }
+
+    void copyAll(ChannelPlane from) {
+        System.arraycopy(from.values, 0, values, 0, SIZE);
+        System.arraycopy(from.timestamps, 0, timestamps, 0, SIZE);
+        System.arraycopy(from.quality, 0, quality, 0, SIZE);
+    }
+
+    void clear(int index) {
+        set(index, Double.NaN, -1L, NONE);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.backend.service.measurement;
+
+// Aggregates of one channel per bucket in a time range, oldest first; buckets without samples are left out
+public record HistoryBuckets(int bucketMillis, long[] startMillis, double[] min, double[] max, double[] mean, int[] count) {
+
+    static HistoryBuckets empty(int bucketMillis) {
+        return new HistoryBuckets(bucketMillis, new long[0], new double[0], new double[0], new double[0], new int[0]);
+    }
+}
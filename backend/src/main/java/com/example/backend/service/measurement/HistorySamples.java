@@ -0,0 +1,7 @@
+package com.example.backend.service.measurement;
+
+// Samples of one channel in a time range, oldest first; the i-th value was read at the i-th time
+public record HistorySamples(long[] timestampsMillis, double[] values) {
+
+    static final HistorySamples EMPTY = new HistorySamples(new long[0], new double[0]);
+}
@@ -0,0 +1,32 @@
+package com.example.backend.service.measurement;
+
+import com.example.backend.enums.MeasurementChannel;
+
+// History of every channel of one test station during one polling session, indexed by the channel's ordinal
+final class MeasurementHistory {
+
+    private final ChannelHistory[] channels = new ChannelHistory[ChannelPlane.SIZE];
+
+    // capacities: ring size per channel ordinal, 0 for a channel the station does not poll
+    MeasurementHistory(long sessionStartMillis, long sessionMillis, int[] capacities) {
+        for (int index = 0; index < channels.length; index++) {
+            channels[index] = new ChannelHistory(sessionStartMillis, sessionMillis, capacities[index]);
+        }
+    }
+
+    void append(MeasurementChannel channel, long timestampMillis, double value) {
+        channels[channel.ordinal()].append(timestampMillis, value);
+    }
+
+    ChannelHistory get(MeasurementChannel channel) {
+        return channels[channel.ordinal()];
+    }
+
+    long getMemoryBytes() {
+        long bytes = 0;
+        for (ChannelHistory channel : channels) {
+            bytes += channel.getMemoryBytes();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.backend.service.measurement;
+
+import com.example.backend.enums.EnergyCalculationType;
+import com.example.backend.enums.HistoryResolution;
+import com.example.backend.enums.MeasurementChannel;
+import com.example.backend.enums.PolledChannel;
+import com.example.backend.enums.SubDeviceType;
+import com.example.backend.models.ModbusDevice;
+import com.example.backend.models.SubDevice;
+import com.example.backend.models.TestStation;
+import com.example.backend.service.modbus.ChannelPollSchedule;
+import com.example.backend.service.modbus.ModbusReadPlanner;
+import com.example.backend.service.teststation.TestStationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the history of a test station's polling session and answers range queries on it. The ring of each
+ * channel is sized for measurement.history.session-minutes at the channel's poll interval, so only the
+ * channels a station actually polls take memory; raw samples older than that are overwritten, the 10 s and
+ * 1 min buckets cover the whole planned session.
+ */
+@Slf4j
+@Service
+public class MeasurementHistoryService {
+
+    private final MeasurementStoreRegistry measurementStores;
+    private final TestStationService testStationService;
+    private final ModbusReadPlanner modbusReadPlanner;
+    private final ChannelPollSchedule channelPollSchedule;
+    private final long sessionMillis;
+
+    public MeasurementHistoryService(MeasurementStoreRegistry measurementStores, TestStationService testStationService,
+                                     ModbusReadPlanner modbusReadPlanner, ChannelPollSchedule channelPollSchedule,
+                                     @Value("${measurement.history.session-minutes:120}") long sessionMinutes) {
+        if (sessionMinutes <= 0) {
+            throw new IllegalArgumentException("measurement.history.session-minutes must be positive: " + sessionMinutes);
+        }
+        this.measurementStores = measurementStores;
+        this.testStationService = testStationService;
+        this.modbusReadPlanner = modbusReadPlanner;
+        this.channelPollSchedule = channelPollSchedule;
+        this.sessionMillis = TimeUnit.MINUTES.toMillis(sessionMinutes);
+    }
+
+    // Replaces the station's history with an empty one for the polling session that starts now
+    public void startSession(int testStationId) {
+        TestStation testStation = testStationService.getTestStationById(testStationId);
+        int[] capacities = new int[ChannelPlane.SIZE];
+        for (ModbusDevice modbusDevice : testStation.getModbusDevices()) {
+            for (SubDevice subDevice : modbusDevice.getSubDevices()) {
+                // A channel on several SubDevices is put once per SubDevice
+                for (PolledChannel channel : modbusReadPlanner.getChannels(subDevice)) {
+                    addCapacity(capacities, MeasurementChannel.of(channel), channelPollSchedule.getIntervalMillis(channel));
+                }
+                if (subDevice.getType() == SubDeviceType.ENERGY
+                        && subDevice.getEnergyCalculationTypes().contains(EnergyCalculationType.COS_PHI)) {
+                    // Calculated whenever an energy reading arrives
+                    addCapacity(capacities, MeasurementChannel.COS_PHI,
+                            channelPollSchedule.getBaseTickMillis(testStationId, SubDeviceType.ENERGY));
+                }
+            }
+        }
+        MeasurementHistory history = new MeasurementHistory(System.currentTimeMillis(), sessionMillis, capacities);
+        measurementStores.get(testStationId).startHistory(history);
+        log.info("History of test station {} holds {} min at the poll intervals in {} KiB",
+                testStationId, TimeUnit.MILLISECONDS.toMinutes(sessionMillis), history.getMemoryBytes() / 1024);
+    }
+
+    public HistorySamples getSamples(int testStationId, MeasurementChannel channel, long fromMillis, long toMillis) {
+        return measurementStores.get(testStationId).readSamples(channel, fromMillis, toMillis);
+    }
+
+    // Buckets of 10 s or 1 min; RAW is answered with getSamples
+    public HistoryBuckets getBuckets(int testStationId, MeasurementChannel channel, HistoryResolution resolution,
+                                     long fromMillis, long toMillis) {
+        if (resolution == HistoryResolution.RAW) {
+            throw new IllegalArgumentException("RAW history has no buckets");
+        }
+        return measurementStores.get(testStationId).readBuckets(channel, resolution.getBucketMillis(), fromMillis, toMillis);
+    }
+
+    private void addCapacity(int[] capacities, MeasurementChannel channel, long intervalMillis) {
+        long samples = Math.ceilDiv(sessionMillis, intervalMillis) + 1;
+        capacities[channel.ordinal()] = (int) Math.min(Integer.MAX_VALUE - 8, capacities[channel.ordinal()] + samples);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.backend.service.measurement;
+
+import com.example.backend.enums.MeasurementChannel;
+import com.example.backend.enums.MeasurementQuality;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Copy of every channel of a {@link MeasurementStore} as it was between two writes: all values come from the
+ * same acquisition cycle, the one with tick {@link #getEpoch()}. Taken without blocking the writer, see
+ * {@link MeasurementStore#snapshot()}.
+ */
+public class MeasurementSnapshot {
+
+    private static final MeasurementChannel[] CHANNELS = MeasurementChannel.values();
+    private static final MeasurementQuality[] QUALITIES = MeasurementQuality.values();
+
+    final ChannelPlane current = new ChannelPlane();
+    final ChannelPlane initial = new ChannelPlane();
+    final ChannelPlane last = new ChannelPlane();
+    long epoch;
+    long version;
+
+    MeasurementSnapshot() {
+    }
+
+    // Tick of the last acquisition cycle whose values are in the snapshot, -1 if none completed yet
+    public long getEpoch() {
+        return epoch;
+    }
+
+    // Write version of the store the snapshot was taken at
+    public long getVersion() {
+        return version;
+    }
+
+    public boolean hasCurrent(MeasurementChannel channel) {
+        return current.has(channel.ordinal());
+    }
+
+    public double getCurrent(MeasurementChannel channel) {
+        return current.values[channel.ordinal()];
+    }
+
+    public long getTimestampMillis(MeasurementChannel channel) {
+        return current.timestamps[channel.ordinal()];
+    }
+
+    public MeasurementQuality getQuality(MeasurementChannel channel) {
+        return QUALITIES[current.quality[channel.ordinal()]];
+    }
+
+    public boolean hasInitial(MeasurementChannel channel) {
+        return initial.has(channel.ordinal());
+    }
+
+    public double getInitial(MeasurementChannel channel) {
+        return initial.values[channel.ordinal()];
+    }
+
+    public boolean hasLast(MeasurementChannel channel) {
+        return last.has(channel.ordinal());
+    }
+
+    public double getLast(MeasurementChannel channel) {
+        return last.values[channel.ordinal()];
+    }
+
+    // Initial values of every channel as sent to the clients, keyed by channel name
+    public Map<String, Object> formatInitial() {
+        return format(initial);
+    }
+
+    // Last values of every channel formatted as sent to the clients, keyed by channel name
+    public Map<String, Object> formatLast() {
+        return format(last);
+    }
+
+    private static Map<String, Object> format(ChannelPlane plane) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (MeasurementChannel channel : CHANNELS) {
+            if (plane.has(channel.ordinal())) {
+                values.put(channel.name(), channel.format(plane.values[channel.ordinal()]));
+            }
+        }
+        return values;
+    }
+}
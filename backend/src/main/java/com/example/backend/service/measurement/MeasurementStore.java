@@ -0,0 +1,289 @@
+package com.example.backend.service.measurement;
+
+import com.example.backend.enums.MeasurementChannel;
+import com.example.backend.enums.MeasurementQuality;
+import com.example.backend.enums.SubDeviceType;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+/**
+ * Values of every {@link MeasurementChannel} of one test station in primitive arrays indexed by the channel's
+ * ordinal: the current value with its acquisition time and quality, the value captured when the measurement
+ * started and the last value published, its end value. The value last pushed to the clients is kept apart for
+ * the deadband check only, it lags the last value while a channel stays within its band. Values are stored
+ * converted to their unit and formatted only when they leave the backend, so a sample costs no String or boxed
+ * number and reading a value allocates nothing.
+ * <p>
+ * Writes are guarded by a sequence lock. The acquisition cycle opens one write section around all processing of
+ * a tick, the sequence is odd while it is open and the tick becomes the store's epoch when it closes. Writers
+ * exclude each other; readers never block them: {@link #snapshot()} copies the arrays and retries if the
+ * sequence moved meanwhile, so a snapshot holds the values of whole cycles only. The single-value getters read
+ * the live arrays and are meant for the cycle that writes them.
+ * <p>
+ * Every value put is also appended to the {@link MeasurementHistory} of the polling session, in the same write
+ * section, so history queries see the same cycles as snapshots.
+ */
+public class MeasurementStore {
+
+    public static final int CHANNEL_COUNT = ChannelPlane.SIZE;
+    private static final MeasurementChannel[] CHANNELS = MeasurementChannel.values();
+    private static final MeasurementQuality[] QUALITIES = MeasurementQuality.values();
+    private static final int READ_SPINS = 100;
+    private static final int READ_YIELDS = 100;
+    private static final long READ_PARK_NANOS = 100_000;
+
+    private final ChannelDeadbands deadbands;
+    private final ChannelPlane current = new ChannelPlane();
+    private final ChannelPlane initial = new ChannelPlane();
+    private final ChannelPlane last = new ChannelPlane();
+    private final ChannelPlane pushed = new ChannelPlane(); // only used by publishIfChanged, never copied to snapshots
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicLong sequence = new AtomicLong(); // odd while a write section is open
+    private long epoch = -1; // tick of the last closed cycle, written in a write section
+    private long cycleTick = -1;
+    private long cycleWritten; // channels put by the open cycle, one bit per ordinal
+    private MeasurementHistory history; // null until the first polling session starts
+
+    public MeasurementStore(ChannelDeadbands deadbands) {
+        this.deadbands = deadbands;
+    }
+
+    // Opens the write section of an acquisition cycle, the nested writes of its processing join it
+    public void beginCycle(long tick) {
+        beginWrite();
+        cycleTick = tick;
+        cycleWritten = 0;
+    }
+
+    public void endCycle() {
+        epoch = cycleTick;
+        endWrite();
+    }
+
+    // Consistent copy of every channel, taken between two write sections without blocking the writer
+    public MeasurementSnapshot snapshot() {
+        return readConsistent(version -> {
+            MeasurementSnapshot snapshot = new MeasurementSnapshot();
+            copyInto(snapshot, version);
+            return snapshot;
+        });
+    }
+
+    // Samples of the channel read in [fromMillis, toMillis] during the current session, copied between two write sections
+    public HistorySamples readSamples(MeasurementChannel channel, long fromMillis, long toMillis) {
+        return readConsistent(version -> history == null
+                ? HistorySamples.EMPTY
+                : history.get(channel).samples(fromMillis, toMillis));
+    }
+
+    public HistoryBuckets readBuckets(MeasurementChannel channel, int bucketMillis, long fromMillis, long toMillis) {
+        return readConsistent(version -> history == null
+                ? HistoryBuckets.empty(bucketMillis)
+                : history.get(channel).buckets(bucketMillis, fromMillis, toMillis));
+    }
+
+    // Replaces the history with an empty one for the session that starts now
+    void startHistory(MeasurementHistory history) {
+        beginWrite();
+        try {
+            this.history = history;
+        } finally {
+            endWrite();
+        }
+    }
+
+    public void put(MeasurementChannel channel, double value, long timestampMillis, MeasurementQuality quality) {
+        beginWrite();
+        try {
+            current.set(channel.ordinal(), value, timestampMillis, (byte) quality.ordinal());
+            cycleWritten |= 1L << channel.ordinal();
+            if (history != null) {
+                history.append(channel, timestampMillis, value);
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    // Copies the current value of every channel and returns the channels put by the open cycle as a bit mask by
+    // ordinal; only meant for the cycle that writes them, before it ends
+    public long copyCycleValues(double[] values) {
+        System.arraycopy(current.values, 0, values, 0, CHANNEL_COUNT);
+        return cycleWritten;
+    }
+
+    public boolean hasCurrent(MeasurementChannel channel) {
+        sequence.get();
+        return current.has(channel.ordinal());
+    }
+
+    // NaN if the channel has no value
+    public double getCurrent(MeasurementChannel channel) {
+        sequence.get();
+        return current.values[channel.ordinal()];
+    }
+
+    public long getTimestampMillis(MeasurementChannel channel) {
+        sequence.get();
+        return current.timestamps[channel.ordinal()];
+    }
+
+    public MeasurementQuality getQuality(MeasurementChannel channel) {
+        sequence.get();
+        return QUALITIES[current.quality[channel.ordinal()]];
+    }
+
+    public boolean hasInitial(MeasurementChannel channel) {
+        sequence.get();
+        return initial.has(channel.ordinal());
+    }
+
+    public double getInitial(MeasurementChannel channel) {
+        sequence.get();
+        return initial.values[channel.ordinal()];
+    }
+
+    public boolean hasLast(MeasurementChannel channel) {
+        sequence.get();
+        return last.has(channel.ordinal());
+    }
+
+    public double getLast(MeasurementChannel channel) {
+        sequence.get();
+        return last.values[channel.ordinal()];
+    }
+
+    // Takes the current value as the last one, and as the pushed one if it left the channel's deadband and the clients
+    // would show it differently, or if the heartbeat is due; true if it has to be pushed. Compares the numbers,
+    // nothing is formatted
+    public boolean publishIfChanged(MeasurementChannel channel) {
+        int index = channel.ordinal();
+        beginWrite();
+        try {
+            if (!current.has(index)) {
+                return false;
+            }
+            last.copy(current, index);
+            if (pushed.has(index) && !deadbands.isHeartbeatDue(pushed.timestamps[index], current.timestamps[index])) {
+                double pushedValue = pushed.values[index];
+                double value = current.values[index];
+                if (channel.toDisplayUnits(pushedValue) == channel.toDisplayUnits(value)
+                        || deadbands.isWithin(index, pushedValue, value)) {
+                    return false;
+                }
+            }
+            pushed.copy(current, index);
+            return true;
+        } finally {
+            endWrite();
+        }
+    }
+
+    public boolean hasInitialValues(SubDeviceType subDeviceType) {
+        sequence.get();
+        for (MeasurementChannel channel : CHANNELS) {
+            if (channel.getSubDeviceType() == subDeviceType && initial.has(channel.ordinal())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The current value of every channel becomes its initial value; channels without one keep the initial value they had
+    public void captureInitial() {
+        beginWrite();
+        try {
+            for (int index = 0; index < CHANNELS.length; index++) {
+                if (current.has(index)) {
+                    initial.copy(current, index);
+                }
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    public void clear(SubDeviceType subDeviceType) {
+        beginWrite();
+        try {
+            for (MeasurementChannel channel : CHANNELS) {
+                if (channel.getSubDeviceType() == subDeviceType) {
+                    current.clear(channel.ordinal());
+                    initial.clear(channel.ordinal());
+                    last.clear(channel.ordinal());
+                    pushed.clear(channel.ordinal());
+                }
+            }
+        } finally {
+            endWrite();
+        }
+    }
+
+    // Only the outermost section moves the sequence, so a cycle is one write for the readers
+    private void beginWrite() {
+        writeLock.lock();
+        if (writeLock.getHoldCount() == 1) {
+            sequence.incrementAndGet();
+            VarHandle.storeStoreFence(); // the odd sequence is visible before any value of the section
+        }
+    }
+
+    private void endWrite() {
+        try {
+            if (writeLock.getHoldCount() == 1) {
+                sequence.incrementAndGet();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Runs the read against the live arrays and retries it until no write section overlapped it; the read must only
+    // copy, it may see torn values in the attempts that are thrown away
+    private <T> T readConsistent(LongFunction<T> read) {
+        if (writeLock.isHeldByCurrentThread()) {
+            // Called from within a write section, e.g. a stop published by the cycle; the writer sees its own writes
+            return read.apply(sequence.get());
+        }
+        for (int attempt = 0; ; attempt++) {
+            long version = sequence.get();
+            if ((version & 1) == 0) {
+                try {
+                    T result = read.apply(version);
+                    VarHandle.loadLoadFence(); // the copy is read before the sequence is checked again
+                    if (sequence.get() == version) {
+                        return result;
+                    }
+                } catch (RuntimeException e) {
+                    // A torn read, e.g. an index past a ring the writer just replaced; only fatal if nothing was written
+                    if (sequence.get() == version) {
+                        throw e;
+                    }
+                }
+            }
+            backOff(attempt);
+        }
+    }
+
+    private void copyInto(MeasurementSnapshot snapshot, long version) {
+        snapshot.current.copyAll(current);
+        snapshot.initial.copyAll(initial);
+        snapshot.last.copyAll(last);
+        snapshot.epoch = epoch;
+        snapshot.version = version;
+    }
+
+    private static void backOff(int attempt) {
+        if (attempt < READ_SPINS) {
+            Thread.onSpinWait();
+        } else if (attempt < READ_SPINS + READ_YIELDS) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(READ_PARK_NANOS);
+        }
+    }
+}
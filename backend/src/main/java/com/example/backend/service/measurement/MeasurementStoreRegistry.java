@@ -0,0 +1,22 @@
+package com.example.backend.service.measurement;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Measurement store of each test station, shared by the energy, heating, gas and CHP services
+@Component
+public class MeasurementStoreRegistry {
+
+    private final ChannelDeadbands deadbands;
+    private final Map<Integer, MeasurementStore> stores = new ConcurrentHashMap<>();
+
+    public MeasurementStoreRegistry(ChannelDeadbands deadbands) {
+        this.deadbands = deadbands;
+    }
+
+    public MeasurementStore get(int testStationId) {
+        return stores.computeIfAbsent(testStationId, id -> new MeasurementStore(deadbands));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.backend.service.modbus;
+
+import com.example.backend.enums.PolledChannel;
+import com.example.backend.enums.SubDeviceType;
+import com.example.backend.models.ModbusDevice;
+import com.example.backend.models.SubDevice;
+import com.example.backend.models.TestStation;
+import com.example.backend.service.teststation.TestStationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides per tick which channels of a SubDevice are due. Each calculation type has its own interval
+ * (enum default, overridable with modbus.poll.interval.NAME in milliseconds); the polling task runs at the
+ * smallest interval and only the due channels are planned into block reads.
+ */
+@Slf4j
+@Component
+public class ChannelPollSchedule {
+
+  private static final long DEFAULT_TICK_MILLIS = 1000;
+
+  private final Environment environment;
+  private final ModbusReadPlanner modbusReadPlanner;
+  private final TestStationService testStationService;
+  private final Map<PolledChannel, Long> intervals = new ConcurrentHashMap<>();
+  private final Map<Integer, Map<SubDevice, long[]>> nextDue = new ConcurrentHashMap<>();
+
+  public ChannelPollSchedule(Environment environment, ModbusReadPlanner modbusReadPlanner, TestStationService testStationService) {
+    this.environment = environment;
+    this.modbusReadPlanner = modbusReadPlanner;
+    this.testStationService = testStationService;
+  }
+
+  public long getIntervalMillis(PolledChannel channel) {
+    return intervals.computeIfAbsent(channel, c -> {
+      long interval = environment.getProperty("modbus.poll.interval." + c.name(), Long.class, c.getDefaultIntervalMillis());
+      if (interval <= 0) {
+        throw new IllegalArgumentException("Poll interval for " + c.name() + " must be positive: " + interval);
+      }
+      return interval;
+    });
+  }
+
+  // Smallest interval of the station's channels of the given SubDevice types
+  public long getBaseTickMillis(int testStationId, SubDeviceType... types) {
+    TestStation testStation = testStationService.getTestStationById(testStationId);
+    Set<SubDeviceType> wanted = EnumSet.copyOf(Arrays.asList(types));
+    long tick = Long.MAX_VALUE;
+    for (ModbusDevice modbusDevice : testStation.getModbusDevices()) {
+      for (SubDevice subDevice : modbusDevice.getSubDevices()) {
+        if (!wanted.contains(subDevice.getType())) continue;
+        for (PolledChannel channel : modbusReadPlanner.getChannels(subDevice)) {
+          tick = Math.min(tick, getIntervalMillis(channel));
+        }
+      }
+    }
+    return tick == Long.MAX_VALUE ? DEFAULT_TICK_MILLIS : tick;
+  }
+
+  // Start addresses of the channels due now, which are then scheduled for their next interval; a caller whose read
+  // of them does not succeed hands them back with retryOnNextTick
+  public List<Integer> takeDueStartAddresses(int testStationId, SubDevice subDevice) {
+    List<PolledChannel> channels = modbusReadPlanner.getChannels(subDevice);
+    long now = System.nanoTime();
+    long[] due = nextDue.computeIfAbsent(testStationId, id -> new ConcurrentHashMap<>())
+            .computeIfAbsent(subDevice, sd -> {
+              long[] initial = new long[channels.size()];
+              Arrays.fill(initial, now); // everything is due on the first tick
+              return initial;
+            });
+
+    List<Integer> dueAddresses = new ArrayList<>(channels.size());
+    synchronized (due) {
+      for (int i = 0; i < channels.size(); i++) {
+        if (now - due[i] < 0) continue;
+        long interval = TimeUnit.MILLISECONDS.toNanos(getIntervalMillis(channels.get(i)));
+        // Keep the cadence unless the channel fell more than one interval behind
+        due[i] = now - due[i] < interval ? due[i] + interval : now + interval;
+        dueAddresses.add(channels.get(i).getStartAddress(subDevice));
+      }
+    }
+    return dueAddresses;
+  }
+
+  // The read of these channels failed or was abandoned: they are due again on the next tick instead of an interval later
+  public void retryOnNextTick(int testStationId, SubDevice subDevice, List<Integer> startAddresses) {
+    Map<SubDevice, long[]> station = nextDue.get(testStationId);
+    long[] due = station == null ? null : station.get(subDevice);
+    if (due == null) return;
+    List<PolledChannel> channels = modbusReadPlanner.getChannels(subDevice);
+    long now = System.nanoTime();
+    synchronized (due) {
+      for (int i = 0; i < channels.size(); i++) {
+        if (startAddresses.contains(channels.get(i).getStartAddress(subDevice)) && due[i] - now > 0) {
+          due[i] = now;
+        }
+      }
+    }
+  }
+
+  public void reset(int testStationId) {
+    nextDue.remove(testStationId);
+  }
+}
@@ -0,0 +1,91 @@
+package com.example.backend.service.modbus;
+
+import com.example.backend.enums.CircuitState;
+import lombok.extern.slf4j.Slf4j;
+
+// Trips after a number of consecutive failed reads on one endpoint, then lets a single probe through
+// once the open period has passed. All reads of all stations behind the endpoint share the breaker.
+@Slf4j
+public class EndpointCircuitBreaker {
+  private final String endpointKey;
+  private final int failureThreshold;
+  private final long openNanos;
+
+  private CircuitState state = CircuitState.CLOSED;
+  private int consecutiveFailures;
+  private long openedAt;
+  private boolean probeInFlight;
+
+  public EndpointCircuitBreaker(String endpointKey, int failureThreshold, long openMillis) {
+    this.endpointKey = endpointKey;
+    this.failureThreshold = failureThreshold;
+    this.openNanos = openMillis * 1_000_000L;
+  }
+
+  // False if the endpoint is open; the caller must report the outcome of every permitted read
+  public synchronized boolean tryAcquire() {
+    switch (state) {
+      case CLOSED -> {
+        return true;
+      }
+      case OPEN -> {
+        if (System.nanoTime() - openedAt < openNanos) {
+          return false;
+        }
+        state = CircuitState.HALF_OPEN;
+        probeInFlight = true;
+        log.info("Circuit for {} half-open, probing", endpointKey);
+        return true;
+      }
+      default -> {
+        if (probeInFlight) {
+          return false;
+        }
+        probeInFlight = true;
+        return true;
+      }
+    }
+  }
+
+  public synchronized void recordSuccess() {
+    if (state != CircuitState.CLOSED) {
+      log.info("Circuit for {} closed, endpoint answers again", endpointKey);
+    }
+    state = CircuitState.CLOSED;
+    consecutiveFailures = 0;
+    probeInFlight = false;
+  }
+
+  // Returns true if this failure tripped a closed circuit; a failed probe simply reopens it
+  public synchronized boolean recordFailure() {
+    probeInFlight = false;
+    consecutiveFailures++;
+    if (state == CircuitState.HALF_OPEN) {
+      state = CircuitState.OPEN;
+      openedAt = System.nanoTime();
+      log.debug("Probe for {} failed, circuit stays open", endpointKey);
+      return false;
+    }
+    if (state == CircuitState.CLOSED && consecutiveFailures >= failureThreshold) {
+      state = CircuitState.OPEN;
+      openedAt = System.nanoTime();
+      log.warn("Circuit for {} opened after {} consecutive failures", endpointKey, consecutiveFailures);
+      return true;
+    }
+    return false;
+  }
+
+  // A permitted read that ended without saying anything about the device, e.g. interrupted by a stop; a probe
+  // slot it held is freed so the next read probes again
+  public synchronized void abandon() {
+    probeInFlight = false;
+  }
+
+  public long getOpenMillis() {
+    return openNanos / 1_000_000L;
+  }
+
+  public synchronized CircuitState getState() {
+    return state;
+  }
+}
@@ -0,0 +1,104 @@
+package com.example.backend.service.modbus;
+
+import com.example.backend.models.ModbusDevice;
+import com.example.backend.models.SubDevice;
+import com.example.backend.models.TestStation;
+import com.example.backend.service.teststation.TestStationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Spreads the tick phases of test stations that share a gateway. The period of a station is divided into
+ * modbus.gateway.phase-slots slots; a starting station takes the slot that puts the fewest requests on its
+ * busiest gateway, ties going to the slot farthest from the stations already there. A gateway should not get
+ * more than modbus.gateway.request-budget requests per slot; when no slot fits, the least loaded one is taken
+ * and a warning is logged. Phases are fractions of each station's own period.
+ */
+@Slf4j
+@Component
+public class GatewayPhasePlanner {
+
+  private final TestStationService testStationService;
+  private final ModbusReadPlanner modbusReadPlanner;
+  private final int phaseSlots;
+  private final int requestBudget;
+  private final Map<Integer, Assignment> assignments = new HashMap<>(); // guarded by this
+
+  private record Assignment(int slot, Map<String, Integer> requestsPerGateway) {
+  }
+
+  public GatewayPhasePlanner(TestStationService testStationService, ModbusReadPlanner modbusReadPlanner,
+                             @Value("${modbus.gateway.phase-slots:8}") int phaseSlots,
+                             @Value("${modbus.gateway.request-budget:8}") int requestBudget) {
+    if (phaseSlots <= 0 || requestBudget <= 0) {
+      throw new IllegalArgumentException("modbus.gateway.phase-slots and request-budget must be positive");
+    }
+    this.testStationService = testStationService;
+    this.modbusReadPlanner = modbusReadPlanner;
+    this.phaseSlots = phaseSlots;
+    this.requestBudget = requestBudget;
+  }
+
+  // Initial delay of the station's first tick, the phase within its period
+  public synchronized long assignPhaseMillis(int testStationId, long periodMillis) {
+    assignments.remove(testStationId);
+    Map<String, Integer> requests = requestsPerGateway(testStationService.getTestStationById(testStationId));
+
+    int bestSlot = 0;
+    int bestLoad = Integer.MAX_VALUE;
+    int bestDistance = -1;
+    for (int slot = 0; slot < phaseSlots; slot++) {
+      int load = 0;
+      int distance = phaseSlots;
+      for (Map.Entry<String, Integer> gateway : requests.entrySet()) {
+        int gatewayLoad = gateway.getValue();
+        for (Assignment other : assignments.values()) {
+          Integer otherRequests = other.requestsPerGateway().get(gateway.getKey());
+          if (otherRequests == null) continue;
+          if (other.slot() == slot) {
+            gatewayLoad += otherRequests;
+          }
+          int apart = Math.abs(other.slot() - slot);
+          distance = Math.min(distance, Math.min(apart, phaseSlots - apart));
+        }
+        load = Math.max(load, gatewayLoad);
+      }
+      if (load < bestLoad || (load == bestLoad && distance > bestDistance)) {
+        bestSlot = slot;
+        bestLoad = load;
+        bestDistance = distance;
+      }
+    }
+    if (bestLoad > requestBudget) {
+      log.warn("Test station {} puts {} requests on a gateway in its best phase slot, over the budget of {}",
+              testStationId, bestLoad, requestBudget);
+    }
+    assignments.put(testStationId, new Assignment(bestSlot, requests));
+    long phaseMillis = periodMillis * bestSlot / phaseSlots;
+    log.info("Test station {} polls in phase slot {}/{} ({} ms into its {} ms period), busiest gateway load {}",
+            testStationId, bestSlot, phaseSlots, phaseMillis, periodMillis, bestLoad);
+    return phaseMillis;
+  }
+
+  public synchronized void release(int testStationId) {
+    assignments.remove(testStationId);
+  }
+
+  // Requests per tick the station sends to each gateway when all of its channels are due
+  private Map<String, Integer> requestsPerGateway(TestStation testStation) {
+    Map<String, Integer> requests = new LinkedHashMap<>();
+    for (ModbusDevice modbusDevice : testStation.getModbusDevices()) {
+      String gateway = ModbusConnection.endpointKey(modbusDevice.getIpAddress(), modbusDevice.getPort());
+      for (SubDevice subDevice : modbusDevice.getSubDevices()) {
+        int spans = modbusReadPlanner.planSpans(subDevice, modbusReadPlanner.getStartAddresses(subDevice)).size();
+        requests.merge(gateway, spans, Integer::sum);
+      }
+    }
+    return requests;
+  }
+}
@@ -1,5 +1,6 @@
 package com.example.backend.service.modbus;
 
+import com.example.backend.enums.WordOrder;
 import com.example.backend.exception.ModbusDeviceException;
 import com.example.backend.models.ModbusDevice;
 import com.example.backend.models.SubDevice;
@@ -9,6 +10,7 @@ import com.serotonin.modbus4j.sero.messaging.WaitingRoomException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -16,46 +18,91 @@ import java.util.Map;
 @Service
 public class ModbusBitwiseService {
   private final ModbusRegisterService modbusRegisterService;
+  private final ModbusReadPlanner modbusReadPlanner;
+  private final ChannelPollSchedule channelPollSchedule;
 
-  public ModbusBitwiseService(ModbusRegisterService modbusRegisterService) {
+  public ModbusBitwiseService(ModbusRegisterService modbusRegisterService, ModbusReadPlanner modbusReadPlanner,
+                              ChannelPollSchedule channelPollSchedule) {
     this.modbusRegisterService = modbusRegisterService;
+    this.modbusReadPlanner = modbusReadPlanner;
+    this.channelPollSchedule = channelPollSchedule;
   }
 
   public long bitwiseShiftCalculation(int testStationId, int startAddress, ModbusDevice modbusDevice, SubDevice subDevice) throws WaitingRoomException, ModbusTransportException, TimeoutException, ModbusDeviceException, InterruptedException {
 
-    List<Map<String, Object>> registers = modbusRegisterService.getRegistersForTestStation(testStationId, startAddress, modbusDevice, subDevice);
+    RegisterSpan span = new RegisterSpan(startAddress, subDevice.getRegistersQuantity());
+    short[] registers = modbusRegisterService.getRegisterValues(testStationId, span, modbusDevice, subDevice);
 
-    long result;
-    if (registers.isEmpty()) {
+    if (registers.length == 0) {
       log.error("No registers available for device {} at start address {}. Possible closed WebSocket session or Modbus communication failure.",
               modbusDevice.getIpAddress(), startAddress);
 
       throw new IllegalStateException("No registers available for device " + modbusDevice.getIpAddress() +
               ". This could be due to a closed WebSocket session or Modbus communication failure.");
-    } else if (registers.size() == 4) {
-      int register1 = (int) registers.get(0).get("value");
-      int register2 = (int) registers.get(1).get("value");
-      int register3 = (int) registers.get(2).get("value");
-      int register4 = (int) registers.get(3).get("value");
-      result = ((long) register1 << 48) | ((long) register2 << 32) | ((long) register3 << 16)
-              | (long) register4;
-
-    } else if (registers.size() == 1) {
-      int register1 = (int) registers.get(0).get("value");
-      result = (long) register1;
-    } else if (registers.size() == 2) {
-      int register1 = (int) registers.get(0).get("value");
-      int register2 = (int) registers.get(1).get("value");
-      result = ((long) register1) | (long) register2 << 16;
-
-    } else {
-      log.error("Unexpected number of registers ({}) for bitwise shift calculation for device {} at address {}",
-              registers.size(), modbusDevice.getIpAddress(), startAddress);
-      throw new IllegalStateException(
-              "Unexpected number of registers for bitwise shift calculation.");
     }
-    return result;
+    return combineRegisters(registers, 0, registers.length, modbusDevice, startAddress);
   }
-}
 
+  // Reads the calculation types of the SubDevice that are due this tick with as few requests as possible,
+  // keyed by start address; channels that are not due are absent from the result
+  public Map<Integer, Long> readSubDevice(int testStationId, ModbusDevice modbusDevice, SubDevice subDevice) throws WaitingRoomException, ModbusTransportException, TimeoutException, ModbusDeviceException, InterruptedException {
+    List<Integer> startAddresses = channelPollSchedule.takeDueStartAddresses(testStationId, subDevice);
+    if (startAddresses.isEmpty()) {
+      return new HashMap<>();
+    }
+
+    boolean read = false;
+    try {
+      Map<Integer, Long> results = readChannels(testStationId, modbusDevice, subDevice, startAddresses);
+      read = true;
+      return results;
+    } finally {
+      if (!read) {
+        // A slow channel would otherwise be lost for its whole interval
+        channelPollSchedule.retryOnNextTick(testStationId, subDevice, startAddresses);
+      }
+    }
+  }
+
+  private Map<Integer, Long> readChannels(int testStationId, ModbusDevice modbusDevice, SubDevice subDevice, List<Integer> startAddresses) throws WaitingRoomException, ModbusTransportException, TimeoutException, ModbusDeviceException, InterruptedException {
+    int quantity = subDevice.getRegistersQuantity();
+    Map<Integer, Long> results = new HashMap<>();
+    List<RegisterSpan> spans = modbusReadPlanner.planSpans(subDevice, startAddresses);
+    List<short[]> blocks = modbusRegisterService.getRegisterBlocks(testStationId, spans, modbusDevice, subDevice);
+    for (int i = 0; i < spans.size(); i++) {
+      RegisterSpan span = spans.get(i);
+      short[] registers = blocks.get(i);
+
+      if (registers.length < span.getQuantity()) {
+        log.error("Expected {} registers but received {} for device {} in span {}. Possible closed WebSocket session or Modbus communication failure.",
+                span.getQuantity(), registers.length, modbusDevice.getIpAddress(), span);
+        throw new IllegalStateException("No registers available for device " + modbusDevice.getIpAddress() +
+                ". This could be due to a closed WebSocket session or Modbus communication failure.");
+      }
+
+      for (int startAddress : startAddresses) {
+        if (span.contains(startAddress, quantity)) {
+          int offset = startAddress - span.getStartAddress();
+          results.put(startAddress, combineRegisters(registers, offset, quantity, modbusDevice, startAddress));
+        }
+      }
+    }
+    return results;
+  }
+
+  // Register layouts of the meters in use: 64 bit high word first, 32 bit low word first, plain unsigned 16 bit
+  private long combineRegisters(short[] registers, int offset, int quantity, ModbusDevice modbusDevice, int startAddress) {
+    return switch (quantity) {
+      case 4 -> RegisterDecoder.int64(registers, offset, WordOrder.HIGH_WORD_FIRST);
+      case 2 -> RegisterDecoder.uint32(registers, offset, WordOrder.LOW_WORD_FIRST);
+      case 1 -> RegisterDecoder.uint16(registers, offset);
+      default -> {
+        log.error("Unexpected number of registers ({}) for bitwise shift calculation for device {} at address {}",
+                quantity, modbusDevice.getIpAddress(), startAddress);
+        throw new IllegalStateException(
+                "Unexpected number of registers for bitwise shift calculation.");
+      }
+    };
+  }
+}
 
@@ -4,9 +4,6 @@ import com.example.backend.exception.ModbusIOException;
 import com.example.backend.models.ModbusDevice;
 import com.example.backend.models.TestStation;
 import com.example.backend.service.teststation.TestStationService;
-import com.serotonin.modbus4j.ModbusFactory;
-import com.serotonin.modbus4j.ModbusMaster;
-import com.serotonin.modbus4j.ip.IpParameters;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
@@ -23,13 +20,15 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ModbusClientService {
 
   private final TestStationService testStationService;
-  private final Map<Integer, List<ModbusMaster>> modbusMasters = new ConcurrentHashMap<>();
-  private final ModbusFactory modbusFactory = new ModbusFactory();
-  private final Map<Integer, List<IpParameters>> modbusIps = new ConcurrentHashMap<>();
+  private final ModbusConnectionRegistry modbusConnectionRegistry;
+  private final Map<Integer, List<ModbusConnection>> modbusConnections = new ConcurrentHashMap<>();
+  // ModbusDevice has identity equality, so this resolves a configured device straight to its connection
+  private final Map<ModbusDevice, ModbusConnection> deviceConnections = new ConcurrentHashMap<>();
 
   @Autowired
-  public ModbusClientService(TestStationService testStationService) {
+  public ModbusClientService(TestStationService testStationService, ModbusConnectionRegistry modbusConnectionRegistry) {
     this.testStationService = testStationService;
+    this.modbusConnectionRegistry = modbusConnectionRegistry;
   }
 
 
@@ -48,70 +47,45 @@ public class ModbusClientService {
 
   private void createModbusMaster(TestStation testStation) {
     try {
-      List<ModbusMaster> modbusMastersList = new ArrayList<>();
-      List<IpParameters> ipParametersList = new ArrayList<>();
+      List<ModbusConnection> connectionsList = new ArrayList<>();
       for (ModbusDevice device : testStation.getModbusDevices()) {
         String ipAddress = device.getIpAddress();
         int port = device.getPort();
 
-        IpParameters params = new IpParameters();
-
-        params.setHost(ipAddress);
-        params.setPort(port);
-        params.setEncapsulated(false);
-
-        ModbusMaster modbusMaster = modbusFactory.createTcpMaster(params, true);
-
-        modbusMaster.setTimeout(5000); // Set timeout to 5000 milliseconds (5 seconds)
-        modbusMaster.setRetries(3);    // Set retries to 3
-
         try {
-       //   modbusMaster.init();
+          // Devices behind the same gateway share one connection, across all test stations
+          ModbusConnection connection = modbusConnectionRegistry.acquire(ipAddress, port);
           log.info("ModbusMaster initialized for device: {}:{}:{}", testStation.getId(), ipAddress, port);
-          modbusMastersList.add(modbusMaster);
-          ipParametersList.add(params);
+          connectionsList.add(connection);
+          deviceConnections.put(device, connection);
         } catch (ModbusIOException e) {
           log.error("Failed to initialize ModbusMaster for {}:{} - {}", ipAddress, port, e.getMessage());
         }
       }
-      modbusMasters.put(testStation.getId(), modbusMastersList);
-      modbusIps.put(testStation.getId(), ipParametersList);
+      modbusConnections.put(testStation.getId(), connectionsList);
     } catch (Exception e) {
       log.error("Unexpected exception while creating ModbusMaster for TestStation {}: {}", testStation.getId(), e.getMessage(), e);
     }
   }
 
-  public List<ModbusMaster> getModbusMasterById(int testStationId) {
-    return modbusMasters.get(testStationId);
+  public ModbusConnection getConnection(ModbusDevice modbusDevice) {
+    return deviceConnections.get(modbusDevice);
   }
 
-  public String getIpAddressFromModbusMaster(ModbusMaster modbusMaster, TestStation testStation) {
-    // Get the list of IpParameters for the given TestStation ID
-    List<IpParameters> ipParametersList = modbusIps.get(testStation.getId());
-    // Check if the ModbusMaster corresponds to an IP in the list
-    for (int i = 0; i < ipParametersList.size(); i++) {
-      IpParameters ipParams = ipParametersList.get(i);
-      if (modbusMaster.equals(modbusMasters.get(testStation.getId()).get(i))) {
-        // Return the IP address stored in IpParameters
-        return ipParams.getHost();
-      }
-    }
-    return null; // Return null if no matching ModbusMaster is found
+  public List<ModbusConnection> getConnectionsById(int testStationId) {
+    return modbusConnections.get(testStationId);
   }
 
 
   @PreDestroy
   private void shutdown() {
-    for (List<ModbusMaster> masters : modbusMasters.values()) {
-      for (ModbusMaster master : masters) {
-        try {
-          master.destroy();
-        } catch (Exception e) {
-          log.warn("Failed to destroy ModbusMaster: {}", e.getMessage(), e);
-        }
+    for (List<ModbusConnection> connections : modbusConnections.values()) {
+      for (ModbusConnection connection : connections) {
+        modbusConnectionRegistry.release(connection);
       }
     }
-    modbusMasters.clear();
+    modbusConnections.clear();
+    deviceConnections.clear();
   }
 }
 
@@ -0,0 +1,33 @@
+package com.example.backend.service.modbus;
+
+import com.example.backend.service.modbus.transport.EndpointLatencyTracker;
+import com.example.backend.service.modbus.transport.ModbusTransport;
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// One managed Modbus TCP connection per physical endpoint (host:port), shared by all devices behind it
+@Getter
+public class ModbusConnection {
+  private final String endpointKey;
+  private final String host;
+  private final int port;
+  private final ModbusTransport transport;
+  private final EndpointLatencyTracker latencyTracker;
+  private final EndpointCircuitBreaker circuitBreaker;
+  private final AtomicInteger referenceCount = new AtomicInteger();
+
+  public ModbusConnection(String endpointKey, String host, int port, ModbusTransport transport,
+                          EndpointLatencyTracker latencyTracker, EndpointCircuitBreaker circuitBreaker) {
+    this.endpointKey = endpointKey;
+    this.host = host;
+    this.port = port;
+    this.transport = transport;
+    this.latencyTracker = latencyTracker;
+    this.circuitBreaker = circuitBreaker;
+  }
+
+  public static String endpointKey(String host, int port) {
+    return host + ":" + port;
+  }
+}
@@ -0,0 +1,156 @@
+package com.example.backend.service.modbus;
+
+import com.example.backend.enums.ModbusTransportType;
+import com.example.backend.service.modbus.transport.EndpointLatencyTracker;
+import com.example.backend.service.modbus.transport.Modbus4jTransport;
+import com.example.backend.service.modbus.transport.ModbusSelectorLoop;
+import com.example.backend.service.modbus.transport.ModbusTransport;
+import com.example.backend.service.modbus.transport.NioModbusTcpTransport;
+import com.example.backend.service.modbus.transport.PipelinedModbusTcpTransport;
+import com.serotonin.modbus4j.ModbusFactory;
+import com.serotonin.modbus4j.ModbusMaster;
+import com.serotonin.modbus4j.ip.IpParameters;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+public class ModbusConnectionRegistry {
+
+  private final ModbusFactory modbusFactory = new ModbusFactory();
+  private final Map<String, ModbusConnection> connections = new ConcurrentHashMap<>();
+  private final ModbusTransportType transportType;
+  private final int pipelineWindow;
+  private final Map<String, Integer> endpointWindows;
+  private final ModbusSelectorLoop selectorLoop;
+  private final int timeoutFloorMillis;
+  private final int timeoutCeilingMillis;
+  private final double timeoutMultiplier;
+  private final int circuitFailureThreshold;
+  private final long circuitOpenMillis;
+
+  public ModbusConnectionRegistry(@Value("${modbus.transport:MODBUS4J}") ModbusTransportType transportType,
+                                  @Value("${modbus.pipeline.window:4}") int pipelineWindow,
+                                  @Value("${modbus.pipeline.endpoint-windows:}") String endpointWindows,
+                                  @Value("${modbus.timeout.floor-ms:250}") int timeoutFloorMillis,
+                                  @Value("${modbus.timeout.ceiling-ms:5000}") int timeoutCeilingMillis,
+                                  @Value("${modbus.timeout.p99-multiplier:3.0}") double timeoutMultiplier,
+                                  @Value("${modbus.circuit.failure-threshold:3}") int circuitFailureThreshold,
+                                  @Value("${modbus.circuit.open-ms:10000}") long circuitOpenMillis) {
+    this.transportType = transportType;
+    this.pipelineWindow = pipelineWindow;
+    this.endpointWindows = parseEndpointWindows(endpointWindows);
+    this.timeoutFloorMillis = timeoutFloorMillis;
+    this.timeoutCeilingMillis = timeoutCeilingMillis;
+    this.timeoutMultiplier = timeoutMultiplier;
+    this.circuitFailureThreshold = circuitFailureThreshold;
+    this.circuitOpenMillis = circuitOpenMillis;
+    this.selectorLoop = transportType == ModbusTransportType.NIO ? openSelectorLoop() : null;
+    log.info("Modbus transport: {} (default pipeline window {}, overrides {})", transportType, pipelineWindow, this.endpointWindows);
+  }
+
+  // Hands out the shared connection for host:port, creating it on first use
+  public ModbusConnection acquire(String host, int port) {
+    String key = ModbusConnection.endpointKey(host, port);
+    ModbusConnection connection = connections.compute(key, (k, existing) -> {
+      ModbusConnection conn = existing != null ? existing : createConnection(k, host, port);
+      conn.getReferenceCount().incrementAndGet();
+      return conn;
+    });
+    log.info("Acquired Modbus connection {} (references: {})", key, connection.getReferenceCount().get());
+    return connection;
+  }
+
+  public void release(ModbusConnection connection) {
+    connections.computeIfPresent(connection.getEndpointKey(), (key, conn) -> {
+      int remaining = conn.getReferenceCount().decrementAndGet();
+      if (remaining > 0) {
+        log.debug("Released Modbus connection {} (references: {})", key, remaining);
+        return conn;
+      }
+      destroy(conn);
+      return null; // last reference gone, drop the endpoint
+    });
+  }
+
+  public Collection<ModbusConnection> getConnections() {
+    return new ArrayList<>(connections.values());
+  }
+
+  private ModbusConnection createConnection(String key, String host, int port) {
+    EndpointLatencyTracker latencyTracker = new EndpointLatencyTracker(timeoutFloorMillis, timeoutCeilingMillis, timeoutMultiplier);
+    ModbusTransport transport = switch (transportType) {
+      case PIPELINED -> new PipelinedModbusTcpTransport(host, port, getPipelineWindow(key), latencyTracker);
+      case NIO -> new NioModbusTcpTransport(host, port, getPipelineWindow(key), latencyTracker, selectorLoop);
+      case MODBUS4J -> {
+        IpParameters params = new IpParameters();
+        params.setHost(host);
+        params.setPort(port);
+        params.setEncapsulated(false);
+
+        ModbusMaster modbusMaster = modbusFactory.createTcpMaster(params, true);
+        modbusMaster.setTimeout(timeoutCeilingMillis);
+        modbusMaster.setRetries(0);    // retries are budgeted once, in ModbusRegisterService
+        yield new Modbus4jTransport(modbusMaster, latencyTracker);
+      }
+    };
+
+    log.info("Created shared {} transport for endpoint {}", transportType, key);
+    return new ModbusConnection(key, host, port, transport, latencyTracker,
+            new EndpointCircuitBreaker(key, circuitFailureThreshold, circuitOpenMillis));
+  }
+
+  public int getPipelineWindow(String endpointKey) {
+    return endpointWindows.getOrDefault(endpointKey, pipelineWindow);
+  }
+
+  // Format: host:port=window,host:port=window
+  private static Map<String, Integer> parseEndpointWindows(String value) {
+    Map<String, Integer> windows = new HashMap<>();
+    if (value == null || value.isBlank()) {
+      return windows;
+    }
+    for (String entry : value.split(",")) {
+      String[] parts = entry.trim().split("=");
+      if (parts.length != 2) {
+        throw new IllegalArgumentException("Invalid modbus.pipeline.endpoint-windows entry: " + entry);
+      }
+      windows.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+    }
+    return windows;
+  }
+
+  private static ModbusSelectorLoop openSelectorLoop() {
+    try {
+      return new ModbusSelectorLoop();
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to open selector for the NIO Modbus transport", e);
+    }
+  }
+
+  private void destroy(ModbusConnection connection) {
+    try {
+      connection.getTransport().destroy();
+      log.info("Destroyed Modbus transport for endpoint {}", connection.getEndpointKey());
+    } catch (Exception e) {
+      log.warn("Failed to destroy Modbus transport for {}: {}", connection.getEndpointKey(), e.getMessage(), e);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    for (ModbusConnection connection : connections.values()) {
+      destroy(connection);
+    }
+    connections.clear();
+    if (selectorLoop != null) {
+      selectorLoop.shutdown();
+    }
+  }
+}
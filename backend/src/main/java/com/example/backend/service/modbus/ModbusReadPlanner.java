@@ -0,0 +1,90 @@
+package com.example.backend.service.modbus;
+
+import com.example.backend.enums.EnergyCalculationType;
+import com.example.backend.enums.PolledChannel;
+import com.example.backend.models.SubDevice;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Merges the register addresses of all calculation types of a SubDevice into the
+ * fewest holding register requests, so one SubDevice costs one or two round-trips
+ * per cycle instead of one per calculation type. Only the channels due in a tick are planned.
+ */
+@Slf4j
+@Service
+public class ModbusReadPlanner {
+
+  // Modbus limit for a single Read Holding Registers request (function code 3)
+  public static final int MAX_REGISTERS_PER_REQUEST = 125;
+
+  private final Map<SubDevice, Map<List<Integer>, List<RegisterSpan>>> planCache = new ConcurrentHashMap<>();
+
+  // Plan for the channels due in one tick; a SubDevice has only a few distinct due sets, each is planned once
+  public List<RegisterSpan> planSpans(SubDevice subDevice, List<Integer> dueStartAddresses) {
+    return planCache.computeIfAbsent(subDevice, sd -> new ConcurrentHashMap<>())
+            .computeIfAbsent(dueStartAddresses, addresses -> {
+              List<RegisterSpan> spans = planSpans(addresses, subDevice.getRegistersQuantity());
+              log.info("Read plan for SubDevice [slaveId={}, startAddress={}, type={}] and addresses {}: {}",
+                      subDevice.getSlaveId(), subDevice.getStartAddress(), subDevice.getType(), addresses, spans);
+              return spans;
+            });
+  }
+
+  public List<RegisterSpan> planSpans(Collection<Integer> startAddresses, int registersPerValue) {
+    if (registersPerValue <= 0 || registersPerValue > MAX_REGISTERS_PER_REQUEST) {
+      throw new IllegalArgumentException("Invalid registers per value: " + registersPerValue);
+    }
+    List<Integer> sorted = new ArrayList<>(new TreeSet<>(startAddresses));
+    List<RegisterSpan> spans = new ArrayList<>();
+    if (sorted.isEmpty()) {
+      return spans;
+    }
+
+    // Greedy left-to-right covering is optimal for a fixed maximum span length
+    int spanStart = sorted.get(0);
+    int spanEnd = spanStart + registersPerValue; // exclusive
+    for (int i = 1; i < sorted.size(); i++) {
+      int address = sorted.get(i);
+      int end = address + registersPerValue;
+      if (end - spanStart <= MAX_REGISTERS_PER_REQUEST) {
+        spanEnd = Math.max(spanEnd, end);
+      } else {
+        spans.add(new RegisterSpan(spanStart, spanEnd - spanStart));
+        spanStart = address;
+        spanEnd = end;
+      }
+    }
+    spans.add(new RegisterSpan(spanStart, spanEnd - spanStart));
+    return spans;
+  }
+
+  public List<Integer> getStartAddresses(SubDevice subDevice) {
+    List<Integer> addresses = new ArrayList<>();
+    for (PolledChannel channel : getChannels(subDevice)) {
+      addresses.add(channel.getStartAddress(subDevice));
+    }
+    return addresses;
+  }
+
+  // Calculation types of the SubDevice that are read from the bus, in configuration order
+  public List<PolledChannel> getChannels(SubDevice subDevice) {
+    List<PolledChannel> channels = new ArrayList<>();
+    switch (subDevice.getType()) {
+      case ENERGY -> {
+        for (EnergyCalculationType type : subDevice.getEnergyCalculationTypes()) {
+          if (type != EnergyCalculationType.COS_PHI) {
+            channels.add(type);
+          }
+        }
+      }
+      case HEATING -> channels.addAll(subDevice.getHeatingCalculationTypes());
+      case GAS -> channels.addAll(subDevice.getGasCalculationTypes());
+      case CHP -> channels.addAll(subDevice.getChpCalculationTypes());
+    }
+    return channels;
+  }
+}
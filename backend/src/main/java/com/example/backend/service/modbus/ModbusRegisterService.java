@@ -1,154 +1,282 @@
 package com.example.backend.service.modbus;
 
  import com.example.backend.config.socket.WebSocketHandlerCustom;
+import com.example.backend.exception.CircuitOpenException;
  import com.example.backend.exception.ModbusDeviceException;
  import com.example.backend.models.ModbusDevice;
  import com.example.backend.models.SubDevice;
- import com.example.backend.models.TestStation;
- import com.example.backend.service.teststation.TestStationService;
 import com.serotonin.modbus4j.sero.messaging.TimeoutException;
 
-import com.serotonin.modbus4j.ModbusMaster;
+import com.example.backend.exception.ModbusSlaveException;
+import com.example.backend.service.modbus.transport.ModbusTransport;
 import com.serotonin.modbus4j.code.ExceptionCode;
 import com.serotonin.modbus4j.exception.ModbusTransportException;
-import com.serotonin.modbus4j.msg.ReadHoldingRegistersRequest;
-import com.serotonin.modbus4j.msg.ReadHoldingRegistersResponse;
 import com.serotonin.modbus4j.sero.messaging.WaitingRoomException;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 @Slf4j
 @Service
 public class ModbusRegisterService {
 
-  private final TestStationService testStationService;
+  private static final short[] EMPTY_REGISTERS = new short[0];
+
   private final ModbusClientService modbusClientService;
   private final WebSocketHandlerCustom webSocketHandlerCustom;
+  private final int maxAttempts;
 
 
-  public ModbusRegisterService(TestStationService testStationService, ModbusClientService modbusClientService, WebSocketHandlerCustom webSocketHandlerCustom) {
-    this.testStationService = testStationService;
+  // modbus.retries is the whole retry budget per read; the transports themselves do not retry
+  public ModbusRegisterService(ModbusClientService modbusClientService, WebSocketHandlerCustom webSocketHandlerCustom,
+                               @Value("${modbus.retries:1}") int retries) {
     this.modbusClientService = modbusClientService;
     this.webSocketHandlerCustom = webSocketHandlerCustom;
+    this.maxAttempts = retries + 1;
   }
 
   public List<Map<String, Object>> getRegistersForTestStation(int testStationId, int startAddress,
                                                               ModbusDevice modbusDevice, SubDevice subDevice)
           throws WaitingRoomException, ModbusTransportException, TimeoutException, ModbusDeviceException, InterruptedException {
+    return getRegistersForTestStation(testStationId, new RegisterSpan(startAddress, subDevice.getRegistersQuantity()),
+            modbusDevice, subDevice);
+  }
+
+  // Map based view of the registers, kept for callers that still expect "address"/"value" entries
+  public List<Map<String, Object>> getRegistersForTestStation(int testStationId, RegisterSpan span,
+                                                              ModbusDevice modbusDevice, SubDevice subDevice)
+          throws WaitingRoomException, ModbusTransportException, TimeoutException, ModbusDeviceException, InterruptedException {
+    return toRegisterMaps(span.getStartAddress(), getRegisterValues(testStationId, span, modbusDevice, subDevice));
+  }
+
+  // Raw register words of the span; an empty array if the device could not be read
+  public short[] getRegisterValues(int testStationId, RegisterSpan span, ModbusDevice modbusDevice, SubDevice subDevice)
+          throws WaitingRoomException, ModbusTransportException, TimeoutException, ModbusDeviceException, InterruptedException {
+    ModbusConnection connection = modbusClientService.getConnection(modbusDevice);
+    checkCircuit(connection);
+    boolean success = false;
+    try {
+      short[] values = getRegisterValues(testStationId, span, modbusDevice, subDevice, maxAttempts);
+      success = values.length > 0;
+      return values;
+    } finally {
+      recordOutcome(connection, success);
+    }
+  }
+
+  private short[] getRegisterValues(int testStationId, RegisterSpan span, ModbusDevice modbusDevice, SubDevice subDevice,
+                                    int attempts)
+          throws WaitingRoomException, ModbusTransportException, TimeoutException, ModbusDeviceException, InterruptedException {
 
     int slaveId = subDevice.getSlaveId();
-    int registersQuantity = subDevice.getRegistersQuantity();
-    List<Map<String, Object>> subDeviceRegisters;
+    int startAddress = span.getStartAddress();
+    int registersQuantity = span.getQuantity();
 
     try {
       // Attempt to read the registers
-      subDeviceRegisters = readHoldingRegisters(testStationId, slaveId, startAddress,
-              registersQuantity, modbusDevice);
+      return readHoldingRegisters(testStationId, slaveId, startAddress,
+              registersQuantity, modbusDevice, attempts);
     } catch (InterruptedException e) {
       Thread.currentThread().interrupt(); // propagate interrupt status
       String errorMessage = "InterruptedException occurred while reading registers " + e.getMessage();
-      sendWebSocketError(errorMessage);
+      sendWebSocketError(testStationId, errorMessage);
       throw e;
     } catch (ModbusDeviceException e) {
       String errorMessage = "ModbusDeviceException occurred while reading registers " + e.getMessage();
-      sendWebSocketError(errorMessage);
+      sendWebSocketError(testStationId, errorMessage);
       throw e;
     } catch (ModbusTransportException e) {
       String errorMessage = "Modbus transport error occurred while reading registers: " + e.getMessage();
-      sendWebSocketError(errorMessage);
+      sendWebSocketError(testStationId, errorMessage);
       throw e;
     } catch (TimeoutException e) {
       String errorMessage = "TimeoutException occurred while reading registers: " + e.getMessage();
-      sendWebSocketError(errorMessage);
+      sendWebSocketError(testStationId, errorMessage);
       throw e;
     } catch (WaitingRoomException e) {
       String errorMessage = "WaitingRoomException occurred while reading registers";
-      sendWebSocketError(errorMessage);
+      sendWebSocketError(testStationId, errorMessage);
       throw e;
     }
-    return new ArrayList<>(subDeviceRegisters);
   }
 
 
-  private List<Map<String, Object>> readHoldingRegisters(int testStationId, int slaveId,
-                                                         int startAddress, int quantity, ModbusDevice modbusDevice)
-          throws WaitingRoomException, ModbusTransportException, TimeoutException, InterruptedException {
-
-    List<Map<String, Object>> allProcessedRegisters = new ArrayList<>();
-
-    List<ModbusMaster> modbusMasters = modbusClientService.getModbusMasterById(testStationId);
+  // Puts all spans on the wire before waiting, so a pipelining transport answers them within one round-trip.
+  // Spans that fail here are read again through the regular retry path with the remaining attempts.
+  public List<short[]> getRegisterBlocks(int testStationId, List<RegisterSpan> spans,
+                                         ModbusDevice modbusDevice, SubDevice subDevice)
+          throws WaitingRoomException, ModbusTransportException, TimeoutException, ModbusDeviceException, InterruptedException {
+    ModbusConnection connection = modbusClientService.getConnection(modbusDevice);
+    checkCircuit(connection);
+    boolean success = false;
+    try {
+      List<short[]> blocks = readRegisterBlocks(testStationId, spans, connection, modbusDevice, subDevice);
+      success = blocks.stream().allMatch(block -> block.length > 0);
+      return blocks;
+    } finally {
+      recordOutcome(connection, success);
+    }
+  }
 
-    if (modbusMasters == null || modbusMasters.isEmpty()) {
-      String msg = "No ModbusMasters found for TestStation ID: " + testStationId;
-      log.warn(msg);
-      sendWebSocketError(msg);
-      return Collections.emptyList();
+  private List<short[]> readRegisterBlocks(int testStationId, List<RegisterSpan> spans, ModbusConnection connection,
+                                           ModbusDevice modbusDevice, SubDevice subDevice)
+          throws WaitingRoomException, ModbusTransportException, TimeoutException, ModbusDeviceException, InterruptedException {
+    List<CompletableFuture<short[]>> inFlight = new ArrayList<>(spans.size());
+    if (connection != null && spans.size() > 1) {
+      for (RegisterSpan span : spans) {
+        inFlight.add(connection.getTransport().readHoldingRegistersAsync(subDevice.getSlaveId(), span.getStartAddress(), span.getQuantity()));
+      }
     }
-    TestStation testStation = testStationService.getTestStationById(testStationId);
-    for (ModbusMaster mod : modbusMasters) {
-      String ipAddress = modbusClientService.getIpAddressFromModbusMaster(mod, testStation);
-
-      if (modbusDevice.getIpAddress().equals(ipAddress)) {
-        boolean success = false;
-        int retries = 2; // Retry 2 times before skipping the device
-
-        // Retry logic
-        while (retries > 0 && !success) {
-          ReadHoldingRegistersRequest request = new ReadHoldingRegistersRequest(slaveId, startAddress, quantity);
-          ReadHoldingRegistersResponse response = (ReadHoldingRegistersResponse) mod.send(request);
-          if (response == null) {
-            log.warn("No response received from Modbus device with IP: {}", ipAddress);
-            retries--;
-            if (retries == 0) {
-              log.error("No response received after {} for the ip Address {}", retries, ipAddress);
-              throw new ModbusDeviceException("Device " + ipAddress + " failed after " + retries);
-            }
-            continue;
-          }
 
-          if (response.isException()) {
-            byte exceptionCode = response.getExceptionCode();
-            String errorMessage = "Modbus Exception received from device with IP: " + ipAddress +
-                    ", Exception Code: " + exceptionCode +
-                    ", Error Message: " + ExceptionCode.getExceptionMessage(exceptionCode);
-            log.warn(errorMessage);// 11, it indicates that the slave device failed to process the request, which is a general failure.
-            if (exceptionCode == 11) {
-              Map<String, Object> errorResponse = new HashMap<>();
-              String retryMessage = "Device " + ipAddress + " failed to respond " + ", Exception Code: " + exceptionCode + ", Error Message: " + ExceptionCode.getExceptionMessage(exceptionCode) + ". Retrying or skipping." + " current retry " + retries + " start address is " + startAddress;
-              log.warn(retryMessage);
-              errorResponse.put("error", retryMessage);
-              errorResponse.put("retry", true);
-              webSocketHandlerCustom.pushDataToClients(errorResponse);
-              retries--;
-              if (retries == 0) {
-                log.error("Device {} failed after retries.", ipAddress);
-                throw new ModbusDeviceException("Device " + ipAddress + " failed after" + retries);
-              }
-              continue;  // Skip this iteration
-            }
-            sendWebSocketError(errorMessage);
-            retries = 0;  // Give up on retries if it's another exception
+    List<short[]> blocks = new ArrayList<>(spans.size());
+    for (int i = 0; i < spans.size(); i++) {
+      RegisterSpan span = spans.get(i);
+      if (!inFlight.isEmpty()) {
+        try {
+          short[] shortData = inFlight.get(i).get();
+          if (shortData != null && shortData.length == span.getQuantity()) {
+            blocks.add(shortData);
             continue;
           }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt(); // get() cleared it, recordOutcome must not count this as a device failure
+          throw e;
+        } catch (ExecutionException e) {
+          log.debug("Pipelined read of span {} on {} failed, falling back to single read: {}",
+                  span, modbusDevice.getIpAddress(), e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+        }
+      }
+      int remainingAttempts = inFlight.isEmpty() ? maxAttempts : maxAttempts - 1;
+      if (remainingAttempts == 0) {
+        String errorMessage = "Device " + modbusDevice.getIpAddress() + " failed to answer span " + span + " and no retries are configured";
+        sendWebSocketError(testStationId, errorMessage);
+        throw new ModbusDeviceException(errorMessage);
+      }
+      blocks.add(getRegisterValues(testStationId, span, modbusDevice, subDevice, remainingAttempts));
+    }
+    return blocks;
+  }
+
+
+  private short[] readHoldingRegisters(int testStationId, int slaveId,
+                                       int startAddress, int quantity, ModbusDevice modbusDevice, int attempts)
+          throws WaitingRoomException, ModbusTransportException, TimeoutException, InterruptedException {
 
+    ModbusConnection connection = modbusClientService.getConnection(modbusDevice);
+
+    if (connection == null) {
+      String msg = "No Modbus connection found for device " + modbusDevice.getIpAddress() + " of TestStation ID: " + testStationId;
+      log.warn(msg);
+      sendWebSocketError(testStationId, msg);
+      return EMPTY_REGISTERS;
+    }
+    ModbusTransport transport = connection.getTransport();
+    String ipAddress = connection.getHost();
+    int retries = attempts; // Attempts left before skipping the device
 
-          short[] shortData = response.getShortData();
-          for (int i = 0; i < shortData.length; i++) {
-            Map<String, Object> register = new HashMap<>();
-            register.put("address", startAddress + i);
-            register.put("value", shortData[i] & 0xFFFF); // Convert to unsigned value
-            allProcessedRegisters.add(register);
+    // Retry logic
+    while (retries > 0) {
+      short[] shortData;
+      try {
+        shortData = transport.readHoldingRegisters(slaveId, startAddress, quantity);
+      } catch (ModbusTransportException e) {
+        // Timeouts and broken connections count against the same budget as missing responses
+        retries--;
+        if (retries == 0) {
+          log.error("Device {} failed after {} attempts: {}", ipAddress, attempts, e.getMessage());
+          throw e;
+        }
+        log.warn("Read from device {} failed ({}), {} attempt(s) left", ipAddress, e.getMessage(), retries);
+        continue;
+      } catch (ModbusSlaveException e) {
+        byte exceptionCode = e.getExceptionCode();
+        String errorMessage = "Modbus Exception received from device with IP: " + ipAddress +
+                ", Exception Code: " + exceptionCode +
+                ", Error Message: " + ExceptionCode.getExceptionMessage(exceptionCode);
+        log.warn(errorMessage);// 11, it indicates that the slave device failed to process the request, which is a general failure.
+        if (exceptionCode == 11) {
+          Map<String, Object> errorResponse = new HashMap<>();
+          String retryMessage = "Device " + ipAddress + " failed to respond " + ", Exception Code: " + exceptionCode + ", Error Message: " + ExceptionCode.getExceptionMessage(exceptionCode) + ". Retrying or skipping." + " current retry " + retries + " start address is " + startAddress;
+          log.warn(retryMessage);
+          errorResponse.put("error", retryMessage);
+          errorResponse.put("retry", true);
+          webSocketHandlerCustom.pushDataToStation(testStationId, errorResponse);
+          retries--;
+          if (retries == 0) {
+            log.error("Device {} failed after retries.", ipAddress);
+            throw new ModbusDeviceException("Device " + ipAddress + " failed after" + retries);
           }
-          success = true;  // Exit retry loop after success
+          continue;  // Skip this iteration
+        }
+        sendWebSocketError(testStationId, errorMessage);
+        retries = 0;  // Give up on retries if it's another exception
+        continue;
+      }
+      if (shortData == null) {
+        log.warn("No response received from Modbus device with IP: {}", ipAddress);
+        retries--;
+        if (retries == 0) {
+          log.error("No response received after {} for the ip Address {}", retries, ipAddress);
+          throw new ModbusDeviceException("Device " + ipAddress + " failed after " + retries);
         }
+        continue;
       }
+
+      return shortData;
+    }
+    return EMPTY_REGISTERS;
+  }
+
+  // Fails fast while the endpoint's circuit is open; devices without a connection are reported by the read itself
+  private void checkCircuit(ModbusConnection connection) {
+    if (connection != null && !connection.getCircuitBreaker().tryAcquire()) {
+      throw new CircuitOpenException("Circuit open for " + connection.getEndpointKey() + ", read skipped");
+    }
+  }
+
+  // Called in the finally block of every permitted read, so a probe slot is always released
+  private void recordOutcome(ModbusConnection connection, boolean success) {
+    if (connection == null) {
+      return;
+    }
+    EndpointCircuitBreaker circuitBreaker = connection.getCircuitBreaker();
+    if (Thread.currentThread().isInterrupted()) {
+      circuitBreaker.abandon(); // an interrupted read says nothing about the device
+      return;
+    }
+    if (success) {
+      circuitBreaker.recordSuccess();
+    } else if (circuitBreaker.recordFailure()) {
+      sendWebSocketError("Device " + connection.getEndpointKey() + " is not responding, its values are skipped for "
+              + circuitBreaker.getOpenMillis() / 1000 + " s before it is probed again");
+    }
+  }
+
+  private List<Map<String, Object>> toRegisterMaps(int startAddress, short[] shortData) {
+    List<Map<String, Object>> registers = new ArrayList<>(shortData.length);
+    for (int i = 0; i < shortData.length; i++) {
+      Map<String, Object> register = new HashMap<>();
+      register.put("address", startAddress + i);
+      register.put("value", RegisterDecoder.uint16(shortData, i)); // Convert to unsigned value
+      registers.add(register);
+    }
+    return registers;
+  }
+
+  private void sendWebSocketError(int testStationId, String errorMessage) {
+    Map<String, String> errorResponse = new HashMap<>();
+    errorResponse.put("error", errorMessage);
+    if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
+      webSocketHandlerCustom.pushDataToStation(testStationId, errorResponse);
     }
-    return allProcessedRegisters;
   }
 
+  // Endpoints can be shared by several test stations, so endpoint errors go to every client
   private void sendWebSocketError(String errorMessage) {
     Map<String, String> errorResponse = new HashMap<>();
     errorResponse.put("error", errorMessage);
@@ -0,0 +1,44 @@
+package com.example.backend.service.modbus;
+
+import com.example.backend.enums.WordOrder;
+
+// Allocation free decoding of raw holding register words; offset is the index of the first register
+public final class RegisterDecoder {
+
+  private RegisterDecoder() {
+  }
+
+  public static int uint16(short[] registers, int offset) {
+    return registers[offset] & 0xFFFF;
+  }
+
+  public static int int16(short[] registers, int offset) {
+    return registers[offset];
+  }
+
+  public static long uint32(short[] registers, int offset, WordOrder wordOrder) {
+    return int32(registers, offset, wordOrder) & 0xFFFFFFFFL;
+  }
+
+  public static int int32(short[] registers, int offset, WordOrder wordOrder) {
+    int first = uint16(registers, offset);
+    int second = uint16(registers, offset + 1);
+    return wordOrder == WordOrder.HIGH_WORD_FIRST
+            ? first << 16 | second
+            : second << 16 | first;
+  }
+
+  // Unsigned 64 bit values above Long.MAX_VALUE come back negative, as with Long.parseUnsignedLong
+  public static long uint64(short[] registers, int offset, WordOrder wordOrder) {
+    return int64(registers, offset, wordOrder);
+  }
+
+  public static long int64(short[] registers, int offset, WordOrder wordOrder) {
+    long result = 0;
+    for (int i = 0; i < 4; i++) {
+      int index = wordOrder == WordOrder.HIGH_WORD_FIRST ? offset + i : offset + 3 - i;
+      result = result << 16 | uint16(registers, index);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,20 @@
+package com.example.backend.service.modbus;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class RegisterSpan {
+  private final int startAddress;
+  private final int quantity;
+
+  public boolean contains(int address, int count) {
+    return address >= startAddress && address + count <= startAddress + quantity;
+  }
+
+  @Override
+  public String toString() {
+    return "[" + startAddress + ".." + (startAddress + quantity - 1) + "]";
+  }
+}
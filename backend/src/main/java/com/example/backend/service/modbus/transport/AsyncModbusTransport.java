@@ -0,0 +1,37 @@
+package com.example.backend.service.modbus.transport;
+
+import com.example.backend.exception.ModbusSlaveException;
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+// Base for transports whose natural interface is asynchronous; the blocking call waits on the future
+public abstract class AsyncModbusTransport implements ModbusTransport {
+
+  @Override
+  public short[] readHoldingRegisters(int slaveId, int startAddress, int quantity)
+          throws ModbusTransportException, InterruptedException {
+    try {
+      return readHoldingRegistersAsync(slaveId, startAddress, quantity).get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof ModbusSlaveException slaveException) {
+        throw slaveException;
+      }
+      if (cause instanceof ModbusTransportException transportException) {
+        throw transportException;
+      }
+      throw new ModbusTransportException(cause);
+    }
+  }
+
+  // Any answer, including an exception response, is a latency sample; a timeout widens the next timeout
+  protected static void recordOutcome(EndpointLatencyTracker latencyTracker, long startedAt, Throwable error) {
+    if (error == null || error instanceof ModbusSlaveException) {
+      latencyTracker.recordLatency(System.nanoTime() - startedAt);
+    } else if (error instanceof TimeoutException) {
+      latencyTracker.recordTimeout();
+    }
+  }
+}
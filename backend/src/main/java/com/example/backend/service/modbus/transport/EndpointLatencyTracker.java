@@ -0,0 +1,74 @@
+package com.example.backend.service.modbus.transport;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rolling response latency of one endpoint. The request timeout follows the observed p99,
+ * scaled by a safety multiplier and clamped to [floor, ceiling]. Until enough samples exist the
+ * ceiling is used. A timed out request counts as a sample at the current timeout, so a device that
+ * slows down pushes its own timeout up instead of being cut off at the old p99.
+ */
+public class EndpointLatencyTracker {
+
+  private static final int WINDOW = 256;
+  private static final int MIN_SAMPLES = 20;
+
+  private final int floorMillis;
+  private final int ceilingMillis;
+  private final double multiplier;
+  private final long[] samplesMicros = new long[WINDOW];
+  private final long[] sortBuffer = new long[WINDOW];
+  private int count;
+  private int next;
+  private volatile int timeoutMillis;
+  private volatile long p99Micros;
+
+  public EndpointLatencyTracker(int floorMillis, int ceilingMillis, double multiplier) {
+    if (floorMillis <= 0 || ceilingMillis < floorMillis) {
+      throw new IllegalArgumentException("Invalid timeout bounds: floor " + floorMillis + " ms, ceiling " + ceilingMillis + " ms");
+    }
+    this.floorMillis = floorMillis;
+    this.ceilingMillis = ceilingMillis;
+    this.multiplier = multiplier;
+    this.timeoutMillis = ceilingMillis;
+  }
+
+  public void recordLatency(long latencyNanos) {
+    record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+  }
+
+  public void recordTimeout() {
+    record(TimeUnit.MILLISECONDS.toMicros(timeoutMillis));
+  }
+
+  private synchronized void record(long micros) {
+    samplesMicros[next] = micros;
+    next = (next + 1) % WINDOW;
+    if (count < WINDOW) {
+      count++;
+    }
+    if (count < MIN_SAMPLES) {
+      return;
+    }
+    System.arraycopy(samplesMicros, 0, sortBuffer, 0, count);
+    Arrays.sort(sortBuffer, 0, count);
+    p99Micros = sortBuffer[(int) Math.ceil(count * 0.99) - 1];
+
+    long derivedMillis = (long) Math.ceil(p99Micros * multiplier / 1000.0);
+    timeoutMillis = (int) Math.max(floorMillis, Math.min(ceilingMillis, derivedMillis));
+  }
+
+  public int getTimeoutMillis() {
+    return timeoutMillis;
+  }
+
+  public int getCeilingMillis() {
+    return ceilingMillis;
+  }
+
+  // 0 until enough samples have been seen
+  public long getP99Micros() {
+    return p99Micros;
+  }
+}
@@ -0,0 +1,68 @@
+package com.example.backend.service.modbus.transport;
+
+import com.example.backend.exception.ModbusSlaveException;
+import com.serotonin.modbus4j.code.ExceptionCode;
+
+import java.nio.ByteBuffer;
+
+// Modbus TCP framing: 7 byte MBAP header (transaction id, protocol id, length, unit id) followed by the PDU
+public final class MbapCodec {
+
+  public static final int HEADER_LENGTH = 7;
+  public static final int READ_HOLDING_REGISTERS_REQUEST_LENGTH = HEADER_LENGTH + 5;
+  public static final int MAX_FRAME_LENGTH = 260;
+  public static final byte FUNCTION_READ_HOLDING_REGISTERS = 0x03;
+
+  private MbapCodec() {
+  }
+
+  public static void writeReadHoldingRegisters(ByteBuffer buffer, int transactionId, int unitId, int startAddress, int quantity) {
+    buffer.putShort((short) transactionId);
+    buffer.putShort((short) 0);   // protocol id, always 0 for Modbus
+    buffer.putShort((short) 6);   // unit id + function code + start address + quantity
+    buffer.put((byte) unitId);
+    buffer.put(FUNCTION_READ_HOLDING_REGISTERS);
+    buffer.putShort((short) startAddress);
+    buffer.putShort((short) quantity);
+  }
+
+  public static byte[] encodeReadHoldingRegisters(int transactionId, int unitId, int startAddress, int quantity) {
+    ByteBuffer buffer = ByteBuffer.allocate(READ_HOLDING_REGISTERS_REQUEST_LENGTH);
+    writeReadHoldingRegisters(buffer, transactionId, unitId, startAddress, quantity);
+    return buffer.array();
+  }
+
+  public static int transactionId(ByteBuffer header) {
+    return header.getShort(header.position()) & 0xFFFF;
+  }
+
+  // Bytes following the header: the length field counts the unit id, which is part of the header here
+  public static int remainingLength(ByteBuffer header) {
+    int length = header.getShort(header.position() + 4) & 0xFFFF;
+    if (length < 2 || length > MAX_FRAME_LENGTH - 6) {
+      throw new IllegalStateException("Invalid MBAP length field: " + length);
+    }
+    return length - 1;
+  }
+
+  // Decodes a function code 3 PDU, positioned at the function code
+  public static short[] decodeReadHoldingRegisters(ByteBuffer pdu, int expectedQuantity) {
+    byte functionCode = pdu.get();
+    if ((functionCode & 0x80) != 0) {
+      byte exceptionCode = pdu.get();
+      throw new ModbusSlaveException(ExceptionCode.getExceptionMessage(exceptionCode), exceptionCode);
+    }
+    if (functionCode != FUNCTION_READ_HOLDING_REGISTERS) {
+      throw new IllegalStateException("Unexpected function code in response: " + functionCode);
+    }
+    int byteCount = pdu.get() & 0xFF;
+    if (byteCount != expectedQuantity * 2 || pdu.remaining() < byteCount) {
+      throw new IllegalStateException("Unexpected byte count " + byteCount + " for " + expectedQuantity + " registers");
+    }
+    short[] data = new short[expectedQuantity];
+    for (int i = 0; i < expectedQuantity; i++) {
+      data[i] = pdu.getShort();
+    }
+    return data;
+  }
+}
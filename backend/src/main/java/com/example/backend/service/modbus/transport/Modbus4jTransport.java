@@ -0,0 +1,67 @@
+package com.example.backend.service.modbus.transport;
+
+import com.example.backend.exception.ModbusSlaveException;
+import com.serotonin.modbus4j.ModbusMaster;
+import com.serotonin.modbus4j.code.ExceptionCode;
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.msg.ReadHoldingRegistersRequest;
+import com.serotonin.modbus4j.msg.ReadHoldingRegistersResponse;
+import com.serotonin.modbus4j.sero.messaging.TimeoutException;
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+
+// Blocking modbus4j master; requests on one endpoint are strictly sequential.
+// modbus4j fixes its timeout when the socket is opened: the tracker's timeout is handed to the master before every
+// request and takes effect on its next connect, which modbus4j makes after a failed request. A healthy connection
+// keeps the timeout it was opened with; per-request timeouts need the PIPELINED or NIO transport.
+@Getter
+public class Modbus4jTransport implements ModbusTransport {
+  private final ModbusMaster modbusMaster;
+  private final EndpointLatencyTracker latencyTracker;
+
+  public Modbus4jTransport(ModbusMaster modbusMaster, EndpointLatencyTracker latencyTracker) {
+    this.modbusMaster = modbusMaster;
+    this.latencyTracker = latencyTracker;
+  }
+
+  @Override
+  public short[] readHoldingRegisters(int slaveId, int startAddress, int quantity) throws ModbusTransportException {
+    ReadHoldingRegistersRequest request = new ReadHoldingRegistersRequest(slaveId, startAddress, quantity);
+    modbusMaster.setTimeout(latencyTracker.getTimeoutMillis());
+    long sentAt = System.nanoTime();
+    ReadHoldingRegistersResponse response;
+    try {
+      response = (ReadHoldingRegistersResponse) modbusMaster.send(request);
+    } catch (ModbusTransportException e) {
+      if (e.getCause() instanceof TimeoutException) {
+        latencyTracker.recordTimeout(); // widens the timeout of the reconnect
+      }
+      throw e;
+    }
+    if (response == null) {
+      return null;
+    }
+    latencyTracker.recordLatency(System.nanoTime() - sentAt);
+    if (response.isException()) {
+      byte exceptionCode = response.getExceptionCode();
+      throw new ModbusSlaveException(ExceptionCode.getExceptionMessage(exceptionCode), exceptionCode);
+    }
+    return response.getShortData();
+  }
+
+  @Override
+  public CompletableFuture<short[]> readHoldingRegistersAsync(int slaveId, int startAddress, int quantity) {
+    // modbus4j cannot keep more than one request in flight, so this completes on the calling thread
+    try {
+      return CompletableFuture.completedFuture(readHoldingRegisters(slaveId, startAddress, quantity));
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    modbusMaster.destroy();
+  }
+}
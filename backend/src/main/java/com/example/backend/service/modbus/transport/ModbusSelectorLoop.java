@@ -0,0 +1,102 @@
+package com.example.backend.service.modbus.transport;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Single I/O thread that services the sockets of every {@link NioModbusTcpTransport}.
+ * All channel state is touched on this thread only; other threads hand work over with {@link #execute}.
+ */
+@Slf4j
+public class ModbusSelectorLoop {
+
+  private static final long SHUTDOWN_WAIT_MILLIS = 2000;
+
+  private final Selector selector;
+  private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+  private final Thread thread;
+  private volatile boolean running = true;
+
+  public ModbusSelectorLoop() throws IOException {
+    this.selector = Selector.open();
+    this.thread = new Thread(this::run, "modbus-nio-selector");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  public void execute(Runnable task) {
+    tasks.add(task);
+    selector.wakeup();
+  }
+
+  SelectionKey register(SocketChannel channel, int ops, NioModbusTcpTransport transport) throws ClosedChannelException {
+    return channel.register(selector, ops, transport);
+  }
+
+  private void run() {
+    while (running) {
+      try {
+        selector.select();
+      } catch (IOException e) {
+        log.error("Modbus selector failed: {}", e.getMessage(), e);
+        break;
+      }
+      runTasks();
+
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+        SelectionKey key = keys.next();
+        keys.remove();
+        NioModbusTcpTransport transport = (NioModbusTcpTransport) key.attachment();
+        try {
+          if (key.isValid() && key.isConnectable()) {
+            transport.onConnectable();
+          }
+          if (key.isValid() && key.isWritable()) {
+            transport.onWritable();
+          }
+          if (key.isValid() && key.isReadable()) {
+            transport.onReadable();
+          }
+        } catch (IOException | RuntimeException e) {
+          transport.onFailure(e);
+        }
+      }
+    }
+    runTasks(); // let pending destroy calls fail their requests
+    try {
+      selector.close();
+    } catch (IOException e) {
+      log.debug("Failed to close Modbus selector: {}", e.getMessage());
+    }
+  }
+
+  private void runTasks() {
+    Runnable task;
+    while ((task = tasks.poll()) != null) {
+      try {
+        task.run();
+      } catch (RuntimeException e) {
+        log.error("Modbus selector task failed: {}", e.getMessage(), e);
+      }
+    }
+  }
+
+  public void shutdown() {
+    running = false;
+    selector.wakeup();
+    try {
+      thread.join(SHUTDOWN_WAIT_MILLIS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.example.backend.service.modbus.transport;
+
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+
+import java.util.concurrent.CompletableFuture;
+
+// Exception responses surface as ModbusSlaveException, a missing response as null
+public interface ModbusTransport {
+
+  short[] readHoldingRegisters(int slaveId, int startAddress, int quantity)
+          throws ModbusTransportException, InterruptedException;
+
+  CompletableFuture<short[]> readHoldingRegistersAsync(int slaveId, int startAddress, int quantity);
+
+  void destroy();
+}
@@ -0,0 +1,224 @@
+package com.example.backend.service.modbus.transport;
+
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking Modbus TCP client for one endpoint. Socket I/O runs on the shared {@link ModbusSelectorLoop},
+ * so no thread is parked per endpoint; up to {@code window} requests are kept in flight and matched by
+ * MBAP transaction id, the rest wait in a queue.
+ */
+@Slf4j
+public class NioModbusTcpTransport extends AsyncModbusTransport {
+
+  private final String host;
+  private final int port;
+  private final int window;
+  private final EndpointLatencyTracker latencyTracker;
+  private final ModbusSelectorLoop loop;
+  private final AtomicInteger transactionIds = new AtomicInteger();
+  private final Map<Integer, Request> inFlight = new ConcurrentHashMap<>();
+  private volatile boolean destroyed;
+
+  // Selector thread only
+  private final Queue<Request> queued = new ArrayDeque<>();
+  private final Queue<ByteBuffer> writeQueue = new ArrayDeque<>();
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(MbapCodec.MAX_FRAME_LENGTH * 4);
+  private SocketChannel channel;
+  private SelectionKey key;
+  private long connectStartedNanos;
+
+  private record Request(int transactionId, int slaveId, int startAddress, int quantity, CompletableFuture<short[]> future) {
+  }
+
+  public NioModbusTcpTransport(String host, int port, int window, EndpointLatencyTracker latencyTracker, ModbusSelectorLoop loop) {
+    this.host = host;
+    this.port = port;
+    this.window = window;
+    this.latencyTracker = latencyTracker;
+    this.loop = loop;
+  }
+
+  @Override
+  public CompletableFuture<short[]> readHoldingRegistersAsync(int slaveId, int startAddress, int quantity) {
+    if (destroyed) {
+      return CompletableFuture.failedFuture(new ModbusTransportException("Transport for " + host + ":" + port + " is destroyed"));
+    }
+    int transactionId = transactionIds.incrementAndGet() & 0xFFFF;
+    Request request = new Request(transactionId, slaveId, startAddress, quantity, new CompletableFuture<>());
+    long submittedAt = System.nanoTime();
+    request.future().orTimeout(latencyTracker.getTimeoutMillis(), TimeUnit.MILLISECONDS).whenComplete((data, error) -> {
+      if (inFlight.remove(transactionId, request)) {
+        loop.execute(this::drain); // a slot in the window is free again
+      }
+      recordOutcome(latencyTracker, submittedAt, error);
+    });
+    loop.execute(() -> {
+      queued.add(request);
+      drain();
+    });
+    return request.future();
+  }
+
+  private void drain() {
+    if (destroyed) {
+      failAll(new IOException("Transport destroyed"));
+      return;
+    }
+    if (queued.isEmpty()) {
+      return;
+    }
+    if (channel == null) {
+      openChannel();
+      return;
+    }
+    if (!channel.isConnected()) {
+      if (System.nanoTime() - connectStartedNanos > TimeUnit.MILLISECONDS.toNanos(latencyTracker.getCeilingMillis())) {
+        onFailure(new ConnectException("Connect to " + host + ":" + port + " timed out"));
+      }
+      return; // onConnectable drains once the connection is up
+    }
+
+    Request request;
+    while (inFlight.size() < window && (request = queued.poll()) != null) {
+      if (request.future().isDone()) {
+        continue; // timed out while queued
+      }
+      inFlight.put(request.transactionId(), request);
+      writeQueue.add(ByteBuffer.wrap(MbapCodec.encodeReadHoldingRegisters(
+              request.transactionId(), request.slaveId(), request.startAddress(), request.quantity())));
+    }
+    try {
+      onWritable();
+    } catch (IOException e) {
+      onFailure(e);
+    }
+  }
+
+  private void openChannel() {
+    try {
+      channel = SocketChannel.open();
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+      connectStartedNanos = System.nanoTime();
+      if (channel.connect(new InetSocketAddress(host, port))) {
+        key = loop.register(channel, SelectionKey.OP_READ, this);
+        onConnected();
+      } else {
+        key = loop.register(channel, SelectionKey.OP_CONNECT, this);
+      }
+    } catch (IOException e) {
+      onFailure(e);
+    }
+  }
+
+  void onConnectable() throws IOException {
+    if (channel.finishConnect()) {
+      key.interestOps(SelectionKey.OP_READ);
+      onConnected();
+    }
+  }
+
+  private void onConnected() {
+    log.info("Opened non-blocking Modbus TCP connection to {}:{}", host, port);
+    drain();
+  }
+
+  void onWritable() throws IOException {
+    ByteBuffer buffer;
+    while ((buffer = writeQueue.peek()) != null) {
+      channel.write(buffer);
+      if (buffer.hasRemaining()) {
+        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE); // socket buffer full, continue when writable
+        return;
+      }
+      writeQueue.poll();
+    }
+    key.interestOps(SelectionKey.OP_READ);
+  }
+
+  void onReadable() throws IOException {
+    if (channel.read(readBuffer) < 0) {
+      throw new EOFException("Connection closed by " + host + ":" + port);
+    }
+    readBuffer.flip();
+    while (readBuffer.remaining() >= MbapCodec.HEADER_LENGTH) {
+      int pduLength = MbapCodec.remainingLength(readBuffer);
+      if (readBuffer.remaining() < MbapCodec.HEADER_LENGTH + pduLength) {
+        break; // wait for the rest of the frame
+      }
+      int transactionId = MbapCodec.transactionId(readBuffer);
+      ByteBuffer pdu = readBuffer.slice(readBuffer.position() + MbapCodec.HEADER_LENGTH, pduLength);
+      readBuffer.position(readBuffer.position() + MbapCodec.HEADER_LENGTH + pduLength);
+
+      Request request = inFlight.get(transactionId);
+      if (request == null) {
+        log.debug("Dropping response for unknown or timed out transaction {} from {}:{}", transactionId, host, port);
+        continue;
+      }
+      try {
+        request.future().complete(MbapCodec.decodeReadHoldingRegisters(pdu, request.quantity()));
+      } catch (RuntimeException e) {
+        request.future().completeExceptionally(e);
+      }
+    }
+    readBuffer.compact();
+  }
+
+  void onFailure(Exception cause) {
+    if (!destroyed) {
+      log.warn("Non-blocking connection to {}:{} failed: {}", host, port, cause.getMessage());
+    }
+    failAll(cause);
+  }
+
+  // Closes the channel and fails everything sent or queued; the next request reconnects
+  private void failAll(Exception cause) {
+    if (key != null) {
+      key.cancel();
+      key = null;
+    }
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        log.debug("Failed to close channel to {}:{}: {}", host, port, e.getMessage());
+      }
+      channel = null;
+    }
+    writeQueue.clear();
+    readBuffer.clear();
+
+    ModbusTransportException failure = new ModbusTransportException(cause);
+    for (Request request : inFlight.values()) {
+      request.future().completeExceptionally(failure);
+    }
+    Request request;
+    while ((request = queued.poll()) != null) {
+      request.future().completeExceptionally(failure);
+    }
+  }
+
+  @Override
+  public void destroy() {
+    destroyed = true;
+    loop.execute(() -> failAll(new IOException("Transport destroyed")));
+  }
+}
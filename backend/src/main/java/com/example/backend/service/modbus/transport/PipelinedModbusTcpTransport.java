@@ -0,0 +1,184 @@
+package com.example.backend.service.modbus.transport;
+
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Modbus TCP client that keeps up to {@code window} requests in flight on one socket.
+ * Responses are matched to their requests by MBAP transaction id, so they may arrive
+ * in any order the gateway chooses.
+ */
+@Slf4j
+public class PipelinedModbusTcpTransport extends AsyncModbusTransport {
+
+  private final String host;
+  private final int port;
+  private final EndpointLatencyTracker latencyTracker;
+  private final Semaphore window;
+  private final AtomicInteger transactionIds = new AtomicInteger();
+  private final Map<Integer, PendingRequest> pending = new ConcurrentHashMap<>();
+  // Locks instead of monitors: callers are virtual threads, which a monitor held across socket I/O would pin
+  private final ReentrantLock connectLock = new ReentrantLock();
+  private final ReentrantLock writeLock = new ReentrantLock();
+
+  private volatile Socket socket;
+  private volatile boolean destroyed;
+
+  private record PendingRequest(CompletableFuture<short[]> future, int quantity, Socket socket) {
+  }
+
+  public PipelinedModbusTcpTransport(String host, int port, int window, EndpointLatencyTracker latencyTracker) {
+    this.host = host;
+    this.port = port;
+    this.latencyTracker = latencyTracker;
+    this.window = new Semaphore(window);
+  }
+
+  @Override
+  public CompletableFuture<short[]> readHoldingRegistersAsync(int slaveId, int startAddress, int quantity) {
+    if (destroyed) {
+      return CompletableFuture.failedFuture(new ModbusTransportException("Transport for " + host + ":" + port + " is destroyed"));
+    }
+    try {
+      if (!window.tryAcquire(latencyTracker.getCeilingMillis(), TimeUnit.MILLISECONDS)) {
+        return CompletableFuture.failedFuture(new ModbusTransportException("No free pipeline slot for " + host + ":" + port));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return CompletableFuture.failedFuture(e);
+    }
+
+    int transactionId = transactionIds.incrementAndGet() & 0xFFFF;
+    CompletableFuture<short[]> future = new CompletableFuture<>();
+    Socket connected = null;
+    boolean registered = false;
+    try {
+      connected = ensureConnected();
+      PendingRequest request = new PendingRequest(future, quantity, connected);
+      pending.put(transactionId, request);
+      long sentAt = System.nanoTime();
+      future.orTimeout(latencyTracker.getTimeoutMillis(), TimeUnit.MILLISECONDS).whenComplete((data, error) -> {
+        pending.remove(transactionId, request);
+        window.release();
+        recordOutcome(latencyTracker, sentAt, error);
+      });
+      registered = true;
+
+      byte[] frame = MbapCodec.encodeReadHoldingRegisters(transactionId, slaveId, startAddress, quantity);
+      OutputStream out = connected.getOutputStream();
+      writeLock.lock();
+      try {
+        out.write(frame);
+        out.flush();
+      } finally {
+        writeLock.unlock();
+      }
+    } catch (IOException e) {
+      if (!registered) {
+        window.release();
+      }
+      future.completeExceptionally(new ModbusTransportException(e));
+      failConnection(connected, e);
+    }
+    return future;
+  }
+
+  private Socket ensureConnected() throws IOException {
+    connectLock.lock();
+    try {
+      if (socket != null && !socket.isClosed()) {
+        return socket;
+      }
+      Socket newSocket = new Socket();
+      newSocket.setTcpNoDelay(true);
+      newSocket.setKeepAlive(true);
+      newSocket.connect(new InetSocketAddress(host, port), latencyTracker.getCeilingMillis());
+      socket = newSocket;
+
+      Thread reader = new Thread(() -> readLoop(newSocket), "modbus-pipeline-" + host + ":" + port);
+      reader.setDaemon(true);
+      reader.start();
+      log.info("Opened pipelined Modbus TCP connection to {}:{}", host, port);
+      return newSocket;
+    } finally {
+      connectLock.unlock();
+    }
+  }
+
+  private void readLoop(Socket readerSocket) {
+    byte[] header = new byte[MbapCodec.HEADER_LENGTH];
+    try {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(readerSocket.getInputStream()));
+      while (!destroyed && !readerSocket.isClosed()) {
+        in.readFully(header);
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        int transactionId = MbapCodec.transactionId(headerBuffer);
+        byte[] pdu = new byte[MbapCodec.remainingLength(headerBuffer)];
+        in.readFully(pdu);
+
+        PendingRequest request = pending.get(transactionId);
+        if (request == null) {
+          log.debug("Dropping response for unknown or timed out transaction {} from {}:{}", transactionId, host, port);
+          continue;
+        }
+        try {
+          request.future().complete(MbapCodec.decodeReadHoldingRegisters(ByteBuffer.wrap(pdu), request.quantity()));
+        } catch (RuntimeException e) {
+          request.future().completeExceptionally(e);
+        }
+      }
+    } catch (IOException | IllegalStateException e) {
+      if (!destroyed) {
+        log.warn("Pipelined connection to {}:{} failed: {}", host, port, e.getMessage());
+      }
+      failConnection(readerSocket, e);
+    }
+  }
+
+  private void failConnection(Socket failedSocket, Exception cause) {
+    connectLock.lock();
+    try {
+      if (failedSocket != null && failedSocket == socket) {
+        closeQuietly(failedSocket);
+        socket = null;
+      }
+    } finally {
+      connectLock.unlock();
+    }
+    for (PendingRequest request : pending.values()) {
+      if (request.socket() == failedSocket) {
+        request.future().completeExceptionally(new ModbusTransportException(cause));
+      }
+    }
+  }
+
+  private void closeQuietly(Socket s) {
+    try {
+      s.close();
+    } catch (IOException e) {
+      log.debug("Failed to close socket to {}:{}: {}", host, port, e.getMessage());
+    }
+  }
+
+  @Override
+  public void destroy() {
+    destroyed = true;
+    Socket current = socket;
+    failConnection(current, new IOException("Transport destroyed"));
+    if (current != null) {
+      closeQuietly(current);
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.example.backend.service.polling;
+
+import com.example.backend.enums.ReadOutcome;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cycle accounting of one polling run of a test station, see CycleMetricsService
+@Getter
+public class CycleMetrics {
+    private final long startedMillis = System.currentTimeMillis();
+    private final AtomicLong lastCycleNanos = new AtomicLong();
+    private final AtomicLong maxCycleNanos = new AtomicLong();
+    private final AtomicLong totalCycleNanos = new AtomicLong();
+    private final AtomicLong recordedCycles = new AtomicLong();
+    private final AtomicLong staleChannelCycles = new AtomicLong(); // stale channels summed over all cycles
+    private final Map<String, Long> lastReadNanos = new ConcurrentHashMap<>();   // per SubDevice
+    private final Map<String, Long> maxReadNanos = new ConcurrentHashMap<>();    // per SubDevice
+    private final Map<String, ReadOutcome> lastReadOutcome = new ConcurrentHashMap<>(); // per SubDevice
+    private final Map<String, Long> lastChannelReadMillis = new ConcurrentHashMap<>();
+    private volatile List<String> staleChannels = List.of();
+
+    void recordCycle(long cycleNanos) {
+        lastCycleNanos.set(cycleNanos);
+        maxCycleNanos.accumulateAndGet(cycleNanos, Math::max);
+        totalCycleNanos.addAndGet(cycleNanos);
+        recordedCycles.incrementAndGet();
+    }
+
+    void recordRead(String subDeviceKey, long readNanos, ReadOutcome outcome) {
+        lastReadNanos.put(subDeviceKey, readNanos);
+        lastReadOutcome.put(subDeviceKey, outcome);
+        maxReadNanos.merge(subDeviceKey, readNanos, Math::max);
+    }
+
+    void setStaleChannels(List<String> channels) {
+        staleChannels = List.copyOf(channels);
+        staleChannelCycles.addAndGet(channels.size());
+    }
+}
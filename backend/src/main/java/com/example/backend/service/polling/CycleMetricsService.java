@@ -0,0 +1,144 @@
+package com.example.backend.service.polling;
+
+import com.example.backend.config.PollingState;
+import com.example.backend.config.PollingStateRegistry;
+import com.example.backend.config.threading.AcquisitionClock;
+import com.example.backend.enums.PolledChannel;
+import com.example.backend.enums.ReadOutcome;
+import com.example.backend.models.ModbusDevice;
+import com.example.backend.models.StationSnapshot;
+import com.example.backend.models.SubDevice;
+import com.example.backend.models.TestStation;
+import com.example.backend.service.modbus.ChannelPollSchedule;
+import com.example.backend.service.modbus.ModbusReadPlanner;
+import com.example.backend.service.teststation.TestStationService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per acquisition cycle its duration, the read time of every SubDevice and the channels that went
+ * stale, i.e. were not read for more than STALE_INTERVALS of their poll interval (circuit open, device
+ * failure or an endpoint late at the read deadline). Together with the tick counters of the station's
+ * {@link AcquisitionClock} this is exposed per station for alerting and for sizing the poll intervals.
+ */
+@Slf4j
+@Service
+public class CycleMetricsService {
+
+    private static final int STALE_INTERVALS = 2;
+
+    private final TestStationService testStationService;
+    private final ModbusReadPlanner modbusReadPlanner;
+    private final ChannelPollSchedule channelPollSchedule;
+    private final PollingStateRegistry pollingStateRegistry;
+    private final Map<Integer, CycleMetrics> metrics = new ConcurrentHashMap<>();
+
+    public CycleMetricsService(TestStationService testStationService, ModbusReadPlanner modbusReadPlanner,
+                               ChannelPollSchedule channelPollSchedule, PollingStateRegistry pollingStateRegistry) {
+        this.testStationService = testStationService;
+        this.modbusReadPlanner = modbusReadPlanner;
+        this.channelPollSchedule = channelPollSchedule;
+        this.pollingStateRegistry = pollingStateRegistry;
+    }
+
+    // Every polling run starts with fresh metrics, like its AcquisitionClock
+    public void reset(int testStationId) {
+        metrics.put(testStationId, new CycleMetrics());
+    }
+
+    public void record(int testStationId, AcquisitionClock clock, StationSnapshot snapshot, long cycleNanos) {
+        CycleMetrics stationMetrics = metrics.computeIfAbsent(testStationId, id -> new CycleMetrics());
+        stationMetrics.recordCycle(cycleNanos);
+
+        Map<SubDevice, StationSnapshot.Reading> readings = new IdentityHashMap<>();
+        for (StationSnapshot.Reading reading : snapshot.getReadings()) {
+            readings.put(reading.subDevice(), reading);
+        }
+        for (StationSnapshot.ReadTime readTime : snapshot.getReadTimes()) {
+            stationMetrics.recordRead(subDeviceKey(readTime.modbusDevice(), readTime.subDevice()), readTime.readNanos(), readTime.outcome());
+        }
+
+        List<String> staleChannels = new ArrayList<>();
+        TestStation testStation = testStationService.getTestStationById(testStationId);
+        long now = System.currentTimeMillis();
+        for (ModbusDevice modbusDevice : testStation.getModbusDevices()) {
+            for (SubDevice subDevice : modbusDevice.getSubDevices()) {
+                StationSnapshot.Reading reading = readings.get(subDevice);
+                for (PolledChannel channel : modbusReadPlanner.getChannels(subDevice)) {
+                    String key = subDeviceKey(modbusDevice, subDevice) + "/" + channel.name();
+                    if (reading != null && reading.values().containsKey(channel.getStartAddress(subDevice))) {
+                        stationMetrics.getLastChannelReadMillis().put(key, reading.timestampMillis());
+                        continue;
+                    }
+                    long lastRead = stationMetrics.getLastChannelReadMillis().getOrDefault(key, stationMetrics.getStartedMillis());
+                    if (now - lastRead > STALE_INTERVALS * channelPollSchedule.getIntervalMillis(channel)) {
+                        staleChannels.add(key);
+                    }
+                }
+            }
+        }
+        stationMetrics.setStaleChannels(staleChannels);
+
+        if (cycleNanos > clock.getPeriodNanos()) {
+            log.warn("Cycle {} of test station {} took {} ms of its {} ms period, slowest read: {}, stale channels: {}",
+                    snapshot.getTick(), testStationId, TimeUnit.NANOSECONDS.toMillis(cycleNanos), clock.getPeriodMillis(),
+                    slowestRead(snapshot), staleChannels.size());
+        }
+    }
+
+    public Map<String, Object> getMetrics(int testStationId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("testStationId", testStationId);
+        PollingState pollingState = pollingStateRegistry.get(testStationId);
+        result.put("status", pollingState.getStatus().get());
+
+        AcquisitionClock clock = pollingState.getAcquisitionClock();
+        if (clock != null) {
+            result.put("periodMillis", clock.getPeriodMillis());
+            result.put("cycles", clock.getCycles());
+            result.put("skippedTicks", clock.getSkippedTicks());
+            result.put("overrunCycles", clock.getOverrunCycles());
+            result.put("lateEndpoints", clock.getLateEndpoints());
+        }
+
+        CycleMetrics stationMetrics = metrics.get(testStationId);
+        if (stationMetrics != null) {
+            long recordedCycles = stationMetrics.getRecordedCycles().get();
+            result.put("lastCycleMillis", toMillis(stationMetrics.getLastCycleNanos().get()));
+            result.put("maxCycleMillis", toMillis(stationMetrics.getMaxCycleNanos().get()));
+            result.put("meanCycleMillis", recordedCycles == 0 ? 0.0 : toMillis(stationMetrics.getTotalCycleNanos().get() / recordedCycles));
+
+            Map<String, Object> readTimes = new TreeMap<>();
+            stationMetrics.getLastReadNanos().forEach((subDevice, lastNanos) -> readTimes.put(subDevice, Map.of(
+                    "lastMillis", toMillis(lastNanos),
+                    "maxMillis", toMillis(stationMetrics.getMaxReadNanos().getOrDefault(subDevice, lastNanos)),
+                    "lastOutcome", stationMetrics.getLastReadOutcome().getOrDefault(subDevice, ReadOutcome.OK))));
+            result.put("readTimes", readTimes);
+            result.put("staleChannels", stationMetrics.getStaleChannels());
+            result.put("staleChannelCycles", stationMetrics.getStaleChannelCycles().get());
+        }
+        return result;
+    }
+
+    // Failed and late reads included, a device that timed out is usually the one that made the cycle overrun
+    private String slowestRead(StationSnapshot snapshot) {
+        return snapshot.getReadTimes().stream()
+                .max(Comparator.comparingLong(StationSnapshot.ReadTime::readNanos))
+                .map(readTime -> subDeviceKey(readTime.modbusDevice(), readTime.subDevice()) + " "
+                        + TimeUnit.NANOSECONDS.toMillis(readTime.readNanos()) + " ms " + readTime.outcome())
+                .orElse("none");
+    }
+
+    private static String subDeviceKey(ModbusDevice modbusDevice, SubDevice subDevice) {
+        return modbusDevice.getIpAddress() + ":" + modbusDevice.getPort() + "/" + subDevice.getSlaveId() + "/"
+                + subDevice.getType() + "@" + subDevice.getStartAddress();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
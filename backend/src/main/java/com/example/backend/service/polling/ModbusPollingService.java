@@ -3,18 +3,33 @@ package com.example.backend.service.polling;
 
 import com.example.backend.config.MeasurementSessionRegistry;
 import com.example.backend.config.PollingState;
+import com.example.backend.config.PollingStateRegistry;
 import com.example.backend.config.socket.WebSocketHandlerCustom;
+import com.example.backend.config.threading.AcquisitionClock;
+import com.example.backend.config.threading.HashedTimingWheel;
 import com.example.backend.config.threading.ScheduledTaskRegistry;
 import com.example.backend.events.StartPollingEvent;
+import com.example.backend.enums.EnergyCalculationType;
+import com.example.backend.enums.GasCalculationType;
+import com.example.backend.enums.HeatingCalculationType;
+import com.example.backend.enums.PollingStatus;
+import com.example.backend.enums.SubDeviceType;
 import com.example.backend.exception.*;
+import com.example.backend.models.StationSnapshot;
+import com.example.backend.service.archive.SessionArchiveService;
 import com.example.backend.service.chp.ChpService;
 import com.example.backend.service.energy.EnergyService;
 import com.example.backend.service.gas.GasService;
 import com.example.backend.service.heating.HeatingService;
+import com.example.backend.service.measurement.MeasurementHistoryService;
+import com.example.backend.service.measurement.MeasurementStore;
+import com.example.backend.service.measurement.MeasurementStoreRegistry;
+import com.example.backend.service.modbus.ChannelPollSchedule;
+import com.example.backend.service.modbus.GatewayPhasePlanner;
 import lombok.Getter;
-import lombok.Synchronized;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 
@@ -25,29 +40,54 @@ import java.util.concurrent.*;
 @Getter
 public class ModbusPollingService {
 
+    private static final long CANCELLED_CYCLE_JOIN_MILLIS = 5_000;
     private final EnergyService energyService;
     private final HeatingService heatingService;
     private final GasService gasService;
     private final ChpService chpService;
     private final MeasurementSessionRegistry measurementSessionRegistry;
     private final WebSocketHandlerCustom webSocketHandlerCustom;
-    private final ScheduledExecutorService executorService;
+    private final HashedTimingWheel timingWheel;
     private final ScheduledTaskRegistry scheduledTaskRegistry;
-    private final PollingState pollingState;
+    private final PollingStateRegistry pollingStateRegistry;
+    private final ChannelPollSchedule channelPollSchedule;
+    private final StationAcquisitionService stationAcquisitionService;
+    private final ExecutorService pollingIoExecutor;
+    private final ExecutorService controlExecutor;
+    private final CycleMetricsService cycleMetricsService;
+    private final GatewayPhasePlanner gatewayPhasePlanner;
+    private final MeasurementStoreRegistry measurementStores;
+    private final MeasurementHistoryService measurementHistoryService;
+    private final SessionArchiveService sessionArchiveService;
 
 
     @Autowired
     public ModbusPollingService(EnergyService energyService, HeatingService heatingService,
-                                GasService gasService, ChpService chpService, MeasurementSessionRegistry measurementSessionRegistry, WebSocketHandlerCustom webSocketHandlerCustom, ScheduledExecutorService executorService, ScheduledTaskRegistry scheduledTaskRegistry, PollingState pollingState) {
+                                GasService gasService, ChpService chpService, MeasurementSessionRegistry measurementSessionRegistry, WebSocketHandlerCustom webSocketHandlerCustom, HashedTimingWheel timingWheel, ScheduledTaskRegistry scheduledTaskRegistry, PollingStateRegistry pollingStateRegistry,
+                                ChannelPollSchedule channelPollSchedule, StationAcquisitionService stationAcquisitionService,
+                                @Qualifier("pollingIoExecutor") ExecutorService pollingIoExecutor,
+                                @Qualifier("controlExecutor") ExecutorService controlExecutor,
+                                CycleMetricsService cycleMetricsService, GatewayPhasePlanner gatewayPhasePlanner,
+                                MeasurementStoreRegistry measurementStores, MeasurementHistoryService measurementHistoryService,
+                                SessionArchiveService sessionArchiveService) {
         this.energyService = energyService;
         this.heatingService = heatingService;
         this.gasService = gasService;
         this.chpService = chpService;
         this.measurementSessionRegistry = measurementSessionRegistry;
         this.webSocketHandlerCustom = webSocketHandlerCustom;
-        this.executorService = executorService;
+        this.timingWheel = timingWheel;
         this.scheduledTaskRegistry = scheduledTaskRegistry;
-        this.pollingState = pollingState;
+        this.pollingStateRegistry = pollingStateRegistry;
+        this.channelPollSchedule = channelPollSchedule;
+        this.stationAcquisitionService = stationAcquisitionService;
+        this.pollingIoExecutor = pollingIoExecutor;
+        this.controlExecutor = controlExecutor;
+        this.cycleMetricsService = cycleMetricsService;
+        this.gatewayPhasePlanner = gatewayPhasePlanner;
+        this.measurementStores = measurementStores;
+        this.measurementHistoryService = measurementHistoryService;
+        this.sessionArchiveService = sessionArchiveService;
     }
 
     @EventListener
@@ -56,168 +96,211 @@ public class ModbusPollingService {
     }
 
 
-    @Synchronized
+    // Lifecycle calls only move the station's status; a start only waits, bounded, for a cycle the last stop cancelled
     public void startPolling(int testStationId) {
         if (webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
             throw new PollingException("No active WebSocket connection.");
         }
-        int currentStationId = pollingState.getCurrentTestStationId().get();
-        boolean isPolling = pollingState.getIsRunning().get();
-
-        // If switching stations while polling
-        if (isPolling && currentStationId != testStationId) {
-            log.info("Switching from test station {} to {}", currentStationId, testStationId);
-            stopPolling(currentStationId);
+        // Every test station has its own state, the other stations keep polling
+        PollingState pollingState = pollingStateRegistry.get(testStationId);
+        if (pollingState.isRunning() && pollingState.getIsMeasureStarted().get()) {
+            log.info("Test station {} is measuring, the new session joins the running polling.", testStationId);
+            return;
         }
-        // If polling is still marked as running (race condition, or not stopped correctly)
-        if (pollingState.getIsRunning().get()) {
-            log.warn("Polling still marked as running. Forcing stop.");
-            stopPolling(currentStationId);
+        // If polling is still marked as running (station selected again, or not stopped correctly)
+        if (pollingState.isRunning()) {
+            log.warn("Polling still marked as running for test station {}. Forcing stop.", testStationId);
+            stopPolling(testStationId);
+        }
+        if (!pollingState.transition(PollingStatus.STOPPED, PollingStatus.STARTING)) {
+            log.info("Polling of test station {} is already being started or stopped, ignoring start.", testStationId);
+            return;
+        }
+        // A cycle cancelled by the stop may still be processing; it must not write old values into the cleared results
+        if (!awaitCancelledCycle(testStationId, pollingState)) {
+            pollingState.transition(PollingStatus.STARTING, PollingStatus.STOPPED);
+            throw new PollingException("The last acquisition cycle of test station " + testStationId + " is still running, try again.");
         }
         // Now it's safe to start
-        clearPreviousResults();
-        pollingState.getCurrentTestStationId().set(testStationId);
-        pollingState.getIsRunning().set(true);
+        clearPreviousResults(testStationId);
+        channelPollSchedule.reset(testStationId);
+        stationAcquisitionService.reset(testStationId);
+        measurementHistoryService.startSession(testStationId);
 
         webSocketHandlerCustom.startWebSocketUpdateTask(testStationId);  // Start sending updates
 
-        scheduledTaskRegistry.register(testStationId, executorService.scheduleWithFixedDelay(() -> {
-            synchronized (this) { // Prevent overlapping executions
-                try {
-                    energyService.processEnergyData(testStationId);
-                    log.info("Completed processEnergyData for test station {}", testStationId);
-
-                    heatingService.processHeatingData(testStationId);
-                    log.info("Completed processHeatingData for test station {}", testStationId);
-                } catch (EnergyProcessingException | HeatingProcessingException e) {
-                    log.error("Stopping polling due to critical failure for test station {}: {}", testStationId, e.getMessage(), e);
-                    stopPolling(testStationId);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    log.warn("Thread interrupted during data processing for test station {}", testStationId, e);
-                    stopPolling(testStationId);
-                } catch (Exception e) {
-                    log.error("Unexpected error in scheduled data processing for test station {}", testStationId, e);
-                    stopPolling(testStationId);
-                }
-            }
-        }, 0, 1, TimeUnit.SECONDS));
+        // One cycle per tick reads every device of the station and feeds all domain services; the tick is the
+        // fastest channel of the station, slower channels are only read when due
+        long tick = channelPollSchedule.getBaseTickMillis(testStationId, SubDeviceType.values());
+        log.info("Poll tick for test station {}: {} ms", testStationId, tick);
+        sessionArchiveService.startSession(testStationId, tick);
+        // Stations sharing a gateway start at different phases of their period
+        long phase = gatewayPhasePlanner.assignPhaseMillis(testStationId, tick);
+        AcquisitionClock clock = new AcquisitionClock(tick, phase);
+        pollingState.setAcquisitionClock(clock);
+        cycleMetricsService.reset(testStationId);
 
+        // Fixed rate keeps the ticks on the clock's grid; the timing wheel only fires the tick, the cycle runs in
+        // the polling I/O bulkhead. A cycle that overruns costs the ticks it covers
+        scheduledTaskRegistry.register(testStationId, timingWheel.scheduleAtFixedRate(
+                () -> dispatchCycle(testStationId, pollingState, clock), phase, tick, TimeUnit.MILLISECONDS));
 
-        scheduledTaskRegistry.register(testStationId, executorService.scheduleWithFixedDelay(() -> {
+        if (!pollingState.transition(PollingStatus.STARTING, PollingStatus.RUNNING)) {
+            log.warn("Polling of test station {} was stopped while starting.", testStationId);
+            scheduledTaskRegistry.cancelAll(testStationId, true);
+            gatewayPhasePlanner.release(testStationId);
+        }
+    }
+
+    // At most one cycle per station is in flight, so the cycle needs no lock of its own
+    private void dispatchCycle(int testStationId, PollingState pollingState, AcquisitionClock clock) {
+        if (!pollingState.isActive() || !pollingState.getCycleFinished().get().isDone()) {
+            return;
+        }
+        CompletableFuture<Void> finished = new CompletableFuture<>();
+        pollingState.getCycleFinished().set(finished);
+        pollingState.getRunningCycle().set(pollingIoExecutor.submit(() -> {
             try {
-                chpService.processDataChp(testStationId);
-                log.info("Completed processChpData for test station {}", testStationId);
-            } catch (ChpProcessingException e) {
+                long startedNanos = System.nanoTime();
+                if (!pollingState.isActive()) {
+                    return; // stopped between dispatch and start
+                }
+                long cycleTick = clock.beginTick(startedNanos);
+                if (cycleTick < 0) {
+                    return;
+                }
+                StationSnapshot snapshot = runCycle(testStationId, pollingState, clock, cycleTick);
+                clock.endTick(startedNanos);
+                cycleMetricsService.record(testStationId, clock, snapshot, System.nanoTime() - startedNanos);
+            } catch (EnergyProcessingException | HeatingProcessingException | GasProcessingException |
+                     ChpProcessingException e) {
                 log.error("Stopping polling due to critical failure for test station {}: {}", testStationId, e.getMessage(), e);
-                stopPolling(testStationId);
+                requestStop(testStationId);
             } catch (InterruptedException e) {
+                // Expected when stopPolling cancels the running cycle
                 Thread.currentThread().interrupt();
-                log.warn("Thread interrupted during data processing for test station {}", testStationId, e);
-                stopPolling(testStationId);
+                log.debug("Acquisition cycle of test station {} interrupted", testStationId);
+                requestStop(testStationId);
             } catch (Exception e) {
                 log.error("Unexpected error in scheduled data processing for test station {}", testStationId, e);
-                stopPolling(testStationId);
-            }
-
-        }, 0, 1, TimeUnit.SECONDS));
-
-        scheduledTaskRegistry.register(testStationId, executorService.scheduleWithFixedDelay(() -> {
-            try {
-                gasService.processGasData(testStationId);
-                log.info("Completed processGasData for device {}", testStationId);
-            } catch (GasProcessingException e) {
-                log.error("Stopping polling due to critical failure for device {}: {}", testStationId, e.getMessage(), e);
-                stopPolling(testStationId);
-            } catch (InterruptedException e) {
-                log.warn("Thread interrupted during data processing for device {}", testStationId, e);
-                stopPolling(testStationId);
-            } catch (Exception e) {
-                log.error("Unexpected error in scheduled gas data processing for device {}", testStationId, e);
-                stopPolling(testStationId);
+                requestStop(testStationId);
+            } finally {
+                finished.complete(null);
             }
-        }, 0, 1, TimeUnit.SECONDS));
+        }));
     }
 
+    private boolean awaitCancelledCycle(int testStationId, PollingState pollingState) {
+        try {
+            pollingState.getCycleFinished().get().get(CANCELLED_CYCLE_JOIN_MILLIS, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            log.warn("Cancelled cycle of test station {} did not finish within {} ms", testStationId, CANCELLED_CYCLE_JOIN_MILLIS);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return true; // never completed exceptionally, the cycle catches everything
+        }
+    }
 
-    public synchronized void startMeasureTask(int testStationId) {
-        System.out.println("Calling startMeasureTask for device " + testStationId + ". isMeasureStarted = " + pollingState.getIsMeasureStarted().get());
-        if (pollingState.getStopRequested().get()) {
-            log.warn("Measurement task scheduling aborted because stop was requested for testStationId {}", testStationId);
-            return;
+    // A cycle that fails hands its stop to another thread, stopPolling would otherwise interrupt the cycle itself
+    private void requestStop(int testStationId) {
+        if (pollingStateRegistry.isRunning(testStationId)) {
+            controlExecutor.execute(() -> stopPolling(testStationId));
         }
+    }
 
-        if (pollingState.getIsMeasureStarted().get()) {
-            System.out.println("Measure task is already started for device " + testStationId);
-            return; // Prevent starting measure task again if already running
+    private StationSnapshot runCycle(int testStationId, PollingState pollingState, AcquisitionClock clock, long tick) throws InterruptedException {
+        StationSnapshot snapshot = stationAcquisitionService.acquire(testStationId, tick, clock.getScheduledNanos(tick),
+                clock.getPeriodNanos());
+        clock.recordLateEndpoints(snapshot.getLateEndpoints());
+
+        // Everything the cycle writes to the store is seen by snapshots as one write, tagged with its tick
+        MeasurementStore store = measurementStores.get(testStationId);
+        store.beginCycle(tick);
+        try {
+            processSnapshot(testStationId, pollingState, snapshot);
+            sessionArchiveService.record(testStationId, tick, snapshot.getTimestamp(), store);
+        } finally {
+            store.endCycle();
         }
+        return snapshot;
+    }
 
-        pollingState.getIsMeasureStarted().set(true);  // Mark measure task as started
+    private void processSnapshot(int testStationId, PollingState pollingState, StationSnapshot snapshot) throws InterruptedException {
+        energyService.processEnergyData(snapshot);
+        heatingService.processHeatingData(snapshot);
+        chpService.processDataChp(snapshot);
+        gasService.processGasData(snapshot);
+        log.info("Completed acquisition cycle for test station {}", testStationId);
 
-        scheduledTaskRegistry.register(testStationId, executorService.scheduleWithFixedDelay(() -> {
-            try {
-                gasService.calculateAndPushMeterDifference(testStationId);
-                log.info("Completed calculateMeterDifference for device {}", testStationId);
-            } catch (InterruptedException e) {
-                log.warn("Thread interrupted during data processing for device {}", testStationId, e);
-                stopPolling(testStationId);
-            } catch (Exception e) {
-                log.error("Unexpected error in scheduled gas data processing for device {}", testStationId, e);
-                stopPolling(testStationId);
-            }
-        }, 0, 1, TimeUnit.SECONDS));
+        if (!pollingState.getIsMeasureStarted().get()) {
+            return;
+        }
+        // Differences only move when their meter was read in this cycle
+        long gasMeterReadAt = snapshot.getTimestampMillis(SubDeviceType.GAS, GasCalculationType.GAS_METER);
+        if (gasMeterReadAt >= 0) {
+            gasService.calculateAndPushMeterDifference(testStationId, gasMeterReadAt);
+        }
+        if (snapshot.hasValue(SubDeviceType.ENERGY, EnergyCalculationType.GENERATED_ENERGY)) {
+            energyService.calculateAndPushEnergyDifference(testStationId);
+        }
+        if (snapshot.hasValue(SubDeviceType.HEATING, HeatingCalculationType.GENERATED_ENERGY_HEATING)) {
+            heatingService.calculateAndPushHeatingDifference(testStationId);
+        }
+    }
 
-        scheduledTaskRegistry.register(testStationId, executorService.scheduleWithFixedDelay(() -> {
 
-            try {
-                energyService.calculateAndPushEnergyDifference(testStationId);
-                log.info("Completed calculateEnergyDifference for device {}", testStationId);
-            } catch (InterruptedException e) {
-                log.warn("Thread interrupted during data processing for device {}", testStationId, e);
-                stopPolling(testStationId);
-            } catch (Exception e) {
-                log.error("Unexpected error in scheduled gas data processing for device {}", testStationId, e);
-                stopPolling(testStationId);
-            }
-        }, 0, 1, TimeUnit.SECONDS));
+    // The differences are calculated by the acquisition cycle once the measurement has started
+    public void startMeasureTask(int testStationId) {
+        PollingState pollingState = pollingStateRegistry.get(testStationId);
+        log.info("Calling startMeasureTask for device {}. isMeasureStarted = {}", testStationId, pollingState.getIsMeasureStarted().get());
+        if (pollingState.getStopRequested().get()) {
+            log.warn("Measurement task scheduling aborted because stop was requested for testStationId {}", testStationId);
+            return;
+        }
 
-        scheduledTaskRegistry.register(testStationId, executorService.scheduleWithFixedDelay(() -> {
-            try {
-                heatingService.calculateAndPushHeatingDifference(testStationId);
-                log.info("Completed calculateHeatingDifference for device {}", testStationId);
-            } catch (InterruptedException e) {
-                log.warn("Thread interrupted during data processing for device {}", testStationId, e);
-                stopPolling(testStationId);
-            } catch (Exception e) {
-                log.error("Unexpected error in scheduled gas data processing for device {}", testStationId, e);
-                stopPolling(testStationId);
-            }
-        }, 0, 1, TimeUnit.SECONDS));
+        if (pollingState.getIsMeasureStarted().getAndSet(true)) {
+            log.info("Measure task is already started for device {}", testStationId);
+        }
     }
 
 
-    public synchronized void stopPolling(int testStationId) {
+    // Interrupts the running cycle instead of waiting for it, an in-flight Modbus read is abandoned
+    public void stopPolling(int testStationId) {
         log.info("stopPolling called for test station {}", testStationId);
-        if (!pollingState.getIsRunning().getAndSet(false)) {
+        PollingState pollingState = pollingStateRegistry.get(testStationId);
+        if (!pollingState.transition(PollingStatus.RUNNING, PollingStatus.STOPPING)
+                && !pollingState.transition(PollingStatus.STARTING, PollingStatus.STOPPING)) {
             log.info("Polling already stopped for test station {}", testStationId);
             if (pollingState.getIsMeasureStarted().getAndSet(false)) {
                 log.info("Measure task stopped during stopPolling for test station {}", testStationId);
             }
             return;
         }
-        pollingState.getIsRunning().set(false);
         pollingState.getIsMeasureStarted().set(false);
-        scheduledTaskRegistry.cancelAll(testStationId);
+        scheduledTaskRegistry.cancelAll(testStationId, true);
+        gatewayPhasePlanner.release(testStationId);
+        // The reference is kept: dispatchCycle of a quick restart must still see the cancelled cycle until it ends
+        Future<?> runningCycle = pollingState.getRunningCycle().get();
+        if (runningCycle != null) {
+            runningCycle.cancel(true);
+        }
+        sessionArchiveService.endSession(testStationId);
         webSocketHandlerCustom.flushPendingDataToOpenSessionsBeforeShutdown(testStationId);
-        log.info("after cancelling tasks UpdateQueue has size {}", webSocketHandlerCustom.getUpdateQueue().size());
+        webSocketHandlerCustom.stopWebSocketUpdateTask(testStationId);
+        pollingState.transition(PollingStatus.STOPPING, PollingStatus.STOPPED);
+        log.info("after cancelling tasks UpdateQueue has size {}", webSocketHandlerCustom.getPendingUpdateCount());
     }
 
-    private void clearPreviousResults() {
-        energyService.clearEnergyResults();
-        heatingService.clearHeatingResults();
-        gasService.clearGasResults();
-        chpService.clearChpResults();
-        measurementSessionRegistry.setSerialNumber(null);
-        pollingState.reset();
+    private void clearPreviousResults(int testStationId) {
+        energyService.clearEnergyResults(testStationId);
+        heatingService.clearHeatingResults(testStationId);
+        gasService.clearGasResults(testStationId);
+        chpService.clearChpResults(testStationId);
+        measurementSessionRegistry.clearSerialNumber(testStationId);
+        pollingStateRegistry.get(testStationId).reset();
     }
 }
@@ -2,22 +2,25 @@ package com.example.backend.service.polling;
 
 
 import com.example.backend.config.PollingState;
+import com.example.backend.config.PollingStateRegistry;
 import com.example.backend.config.socket.WebSocketHandlerCustom;
+import com.example.backend.config.threading.HashedTimingWheel;
 import com.example.backend.events.StopPollingEvent;
-import com.example.backend.service.chp.ChpService;
-import com.example.backend.service.energy.EnergyService;
+import com.example.backend.service.gas.GasResults;
 import com.example.backend.service.gas.GasService;
-import com.example.backend.service.heating.HeatingService;
+import com.example.backend.service.measurement.MeasurementSnapshot;
+import com.example.backend.service.measurement.MeasurementStoreRegistry;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.event.EventListener;
 
 import org.springframework.stereotype.Service;
 
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.*;
 
 
 @Slf4j
@@ -25,26 +28,26 @@ import java.util.Map;
 @Getter
 public class PollingControlService {
 
-    private final EnergyService energyService;
-    private final HeatingService heatingService;
-    private final ChpService chpService;
+    private final MeasurementStoreRegistry measurementStores;
     private final GasService gasService;
     private final ModbusPollingService modbusPollingService;
     private final WebSocketHandlerCustom webSocketHandlerCustom;
-    private final PollingState pollingState;
-    private volatile long endTime = -1L;
+    private final PollingStateRegistry pollingStateRegistry;
+    private final HashedTimingWheel timingWheel;
+    private final ExecutorService controlExecutor;
     private static final long INITIAL_RESULTS_TIMEOUT_MS = 120_000;
 
 
     @Autowired
-    public PollingControlService(EnergyService energyService, HeatingService heatingService, ChpService chpService, GasService gasService, ModbusPollingService modbusPollingService, WebSocketHandlerCustom webSocketHandlerCustom, PollingState pollingState) {
-        this.energyService = energyService;
-        this.heatingService = heatingService;
-        this.chpService = chpService;
+    public PollingControlService(MeasurementStoreRegistry measurementStores, GasService gasService, ModbusPollingService modbusPollingService, WebSocketHandlerCustom webSocketHandlerCustom, PollingStateRegistry pollingStateRegistry,
+                                 HashedTimingWheel timingWheel, @Qualifier("controlExecutor") ExecutorService controlExecutor) {
+        this.measurementStores = measurementStores;
         this.gasService = gasService;
         this.modbusPollingService = modbusPollingService;
         this.webSocketHandlerCustom = webSocketHandlerCustom;
-        this.pollingState = pollingState;
+        this.pollingStateRegistry = pollingStateRegistry;
+        this.timingWheel = timingWheel;
+        this.controlExecutor = controlExecutor;
     }
 
 
@@ -56,58 +59,65 @@ public class PollingControlService {
 
 
     public void startMeasurement(int testStationId) {
+        PollingState pollingState = pollingStateRegistry.get(testStationId);
 
         if (pollingState.getStopRequested().get()) {
             log.warn("Measurement aborted early because stop was already requested for testStationId {}", testStationId);
             return;
         }
-        if (!webSocketHandlerCustom.getConnectedSessions().isEmpty() && pollingState.getIsRunning().get()) {
+        if (!webSocketHandlerCustom.getConnectedSessions().isEmpty() && pollingState.isRunning()) {
             modbusPollingService.startMeasureTask(testStationId);
         }
 
+        // No thread waits for the gas baseline: the acquisition cycle completes the future, the timing wheel times it out
+        GasResults gasResults = gasService.getResults(testStationId);
+        CompletableFuture<Void> initialResultsReady = gasResults.getInitialResultsReady();
+        ScheduledFuture<?> timeout = timingWheel.schedule(
+                () -> initialResultsReady.completeExceptionally(new TimeoutException()),
+                INITIAL_RESULTS_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        initialResultsReady.whenCompleteAsync((ignored, error) -> {
+            timeout.cancel(false);
+            onInitialResults(testStationId, gasResults, error);
+        }, controlExecutor);
+    }
 
-        long waitStartTime = System.currentTimeMillis();
-        while (!gasService.getIsInitialResultsPopulated().get() && !pollingState.getStopRequested().get() && !Thread.currentThread().isInterrupted()) {
-            if (System.currentTimeMillis() - waitStartTime > INITIAL_RESULTS_TIMEOUT_MS) {
-                log.error("Timeout while waiting for gas results for testStationId: {}", testStationId);
-                String error = "Timeout while waiting for gas results for testStationId: " + testStationId;
-                sendError(error);
-                pollingState.getStopRequested().set(true);
-                modbusPollingService.stopPolling(testStationId);
-                return;
-            }
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                log.warn("Measurement thread was interrupted", e);
-                Thread.currentThread().interrupt();
-                return;
-            }
+    private void onInitialResults(int testStationId, GasResults gasResults, Throwable error) {
+        if (gasService.getResults(testStationId) != gasResults) {
+            log.info("Gas results of testStationId {} were cleared by a new polling run, dropping the pending measurement start", testStationId);
+            return;
         }
-        if (!pollingState.getStopRequested().get()) {
-            sendInitialResults(testStationId);
-        } else {
+        PollingState pollingState = pollingStateRegistry.get(testStationId);
+        if (error instanceof TimeoutException) {
+            log.error("Timeout while waiting for gas results for testStationId: {}", testStationId);
+            String errorMessage = "Timeout while waiting for gas results for testStationId: " + testStationId;
+            sendError(testStationId, errorMessage);
+            pollingState.getStopRequested().set(true);
+            modbusPollingService.stopPolling(testStationId);
+        } else if (error != null || pollingState.getStopRequested().get()) {
             log.info("Measurement stopped before initial results were received for testStationId: {}", testStationId);
             String errorMessage = "Measurement stopped before initial results were received for testStationId: " + testStationId;
-            sendError(errorMessage);
+            sendError(testStationId, errorMessage);
             modbusPollingService.stopPolling(testStationId);
+        } else {
+            sendInitialResults(testStationId);
         }
-
     }
 
 
     public void stopMeasurement(int testStationId) {
-        System.out.println("stopMeasurement is called ");
-
+        log.info("stopMeasurement is called for testStationId {}", testStationId);
+        PollingState pollingState = pollingStateRegistry.get(testStationId);
         pollingState.getStopRequested().set(true);
 
-        if (!gasService.getIsInitialResultsPopulated().get() && pollingState.getIsMeasureStarted().get()) {
+        GasResults gasResults = gasService.getResults(testStationId);
+        if (!gasResults.getIsInitialResultsPopulated().get() && pollingState.getIsMeasureStarted().get()) {
             log.error("Initial results for gas were not received for the test stationID: {}", testStationId);
+            gasResults.getInitialResultsReady().cancel(false); // the pending start reports the stop and stops polling
             return;
         }
 
-        if (pollingState.getIsRunning().get()) {
-            endTime = System.currentTimeMillis();
+        if (pollingState.isRunning()) {
+            pollingState.getEndTime().set(System.currentTimeMillis());
             modbusPollingService.stopPolling(testStationId);
         }
         if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
@@ -117,36 +127,32 @@ public class PollingControlService {
     }
 
 
+    // The initial values of every SubDevice type were captured in the cycle of the gas baseline
     private void sendInitialResults(int testStationId) {
-        Map<String, Object> combinedResults = new LinkedHashMap<>();
-        combinedResults.putAll(energyService.getStartEnergyResults(testStationId));
-        combinedResults.putAll(heatingService.getStartHeatingResults(testStationId));
-        combinedResults.putAll(gasService.getStartGasResults(testStationId));
-        combinedResults.putAll(chpService.getStartChpResults(testStationId));
+        MeasurementSnapshot snapshot = measurementStores.get(testStationId).snapshot();
+        Map<String, Object> combinedResults = snapshot.formatInitial();
 
-        long startTime = gasService.getTimestampNow();
-        log.info("Start time is: {}", startTime);
+        long startTime = gasService.getResults(testStationId).getTimestampNow();
+        log.info("Start time is: {} (snapshot of tick {})", startTime, snapshot.getEpoch());
 
         Map<String, Object> response = new HashMap<>();
         response.put("initialData", combinedResults);
         response.put("startTime", startTime);
 
         if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
-            webSocketHandlerCustom.pushDataToClients(response);
+            webSocketHandlerCustom.pushDataToStation(testStationId, response);
         }
     }
 
 
     private void sendLastResults(int testStationId) {
-        Map<String, Object> combinedResults = new LinkedHashMap<>();
-        combinedResults.putAll(energyService.getLastEnergyResults(testStationId));
-        combinedResults.putAll(heatingService.getLastHeatingResults(testStationId));
-        combinedResults.putAll(gasService.getLastGasResults(testStationId));
-        combinedResults.putAll(chpService.getLastChpResults(testStationId));
+        MeasurementSnapshot snapshot = measurementStores.get(testStationId).snapshot();
+        Map<String, Object> combinedResults = snapshot.formatLast();
+        log.debug("Last results of testStationId {} from tick {}", testStationId, snapshot.getEpoch());
 
         Map<String, Object> response = new HashMap<>();
         response.put("lastData", combinedResults);
-        response.put("endTime", endTime);
+        response.put("endTime", getEndTime(testStationId));
 
         if (combinedResults.isEmpty()) {
             log.warn("No lastData available to send for testStationId: {}", testStationId);
@@ -154,18 +160,22 @@ public class PollingControlService {
         }
 
         if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
-            webSocketHandlerCustom.pushDataToClients(response);
+            webSocketHandlerCustom.pushDataToStation(testStationId, response);
         }
 
     }
 
-    private void sendError(String errorMessage) {
+    private void sendError(int testStationId, String errorMessage) {
         Map<String, Object> errorResponse = new HashMap<>();
         errorResponse.put("error", errorMessage);
         if (!webSocketHandlerCustom.getConnectedSessions().isEmpty()) {
-            webSocketHandlerCustom.pushDataToClients(errorResponse);
+            webSocketHandlerCustom.pushDataToStation(testStationId, errorResponse);
         }
     }
 
+    public long getEndTime(int testStationId) {
+        return pollingStateRegistry.get(testStationId).getEndTime().get();
+    }
+
 
 }
\ No newline at end of file
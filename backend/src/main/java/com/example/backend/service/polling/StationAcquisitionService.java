@@ -0,0 +1,235 @@
+package com.example.backend.service.polling;
+
+import com.example.backend.enums.ReadOutcome;
+import com.example.backend.exception.*;
+import com.example.backend.models.ModbusDevice;
+import com.example.backend.models.StationSnapshot;
+import com.example.backend.models.SubDevice;
+import com.example.backend.models.TestStation;
+import com.example.backend.service.modbus.ModbusBitwiseService;
+import com.example.backend.service.modbus.ModbusConnection;
+import com.example.backend.service.teststation.TestStationService;
+import com.serotonin.modbus4j.exception.ModbusTransportException;
+import com.serotonin.modbus4j.sero.messaging.TimeoutException;
+import com.serotonin.modbus4j.sero.messaging.WaitingRoomException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads every SubDevice of a test station once per tick and returns the decoded values as one
+ * {@link StationSnapshot}. The domain services only process snapshots, so the topology is walked once
+ * and all calculations of a tick see values from the same cycle.
+ * <p>
+ * Every endpoint (ip:port) of a station is read by its own virtual thread, the devices behind one gateway are
+ * read one after another. The cycle waits for the endpoints until its read deadline, but never cancels a read:
+ * a read runs until the endpoint answers or its request timeout expires, so the circuit breaker always learns
+ * its outcome. An endpoint that misses the deadline contributes the SubDevices it finished so far; the rest
+ * arrive with a later snapshot, and the endpoint gets no new request until its running read has ended. A cycle
+ * takes as long as its slowest endpoint, at most the deadline.
+ */
+@Slf4j
+@Service
+public class StationAcquisitionService {
+
+    private final TestStationService testStationService;
+    private final ModbusBitwiseService modbusBitwiseService;
+    private final ExecutorService modbusReadExecutor;
+    private final int readBudgetPercent;
+    private final Map<Integer, Map<String, EndpointRead>> endpointReads = new ConcurrentHashMap<>();
+
+    public StationAcquisitionService(TestStationService testStationService, ModbusBitwiseService modbusBitwiseService,
+                                     @Qualifier("modbusReadExecutor") ExecutorService modbusReadExecutor,
+                                     @Value("${modbus.cycle.read-budget-percent:80}") int readBudgetPercent) {
+        if (readBudgetPercent <= 0 || readBudgetPercent > 100) {
+            throw new IllegalArgumentException("modbus.cycle.read-budget-percent must be within 1..100: " + readBudgetPercent);
+        }
+        this.testStationService = testStationService;
+        this.modbusBitwiseService = modbusBitwiseService;
+        this.modbusReadExecutor = modbusReadExecutor;
+        this.readBudgetPercent = readBudgetPercent;
+    }
+
+    // The reads of a tick must be done within readBudgetPercent of the period, the rest is left for processing
+    public StationSnapshot acquire(int testStationId, long tick, long scheduledNanos, long periodNanos) throws InterruptedException {
+        StationSnapshot snapshot = new StationSnapshot(testStationId, tick, scheduledNanos);
+        TestStation testStation = testStationService.getTestStationById(testStationId);
+
+        Map<String, List<ModbusDevice>> endpoints = new LinkedHashMap<>();
+        for (ModbusDevice modbusDevice : testStation.getModbusDevices()) {
+            endpoints.computeIfAbsent(ModbusConnection.endpointKey(modbusDevice.getIpAddress(), modbusDevice.getPort()), k -> new ArrayList<>())
+                    .add(modbusDevice);
+        }
+        long deadlineNanos = scheduledNanos + periodNanos * readBudgetPercent / 100;
+        Map<String, EndpointRead> stationReads = endpointReads.computeIfAbsent(testStationId, id -> new ConcurrentHashMap<>());
+        List<EndpointRead> collected = new ArrayList<>();
+        List<EndpointRead> dispatched = new ArrayList<>();
+        int busyEndpoints = 0;
+        for (Map.Entry<String, List<ModbusDevice>> endpoint : endpoints.entrySet()) {
+            EndpointRead previous = stationReads.get(endpoint.getKey());
+            if (previous != null) {
+                collected.add(previous); // readings that arrived after their own deadline
+                if (previous.isRunning()) {
+                    // One request per endpoint at a time: a read behind a slow or dead device is not joined by another
+                    busyEndpoints++;
+                    continue;
+                }
+                if (previous.late && !previous.discarded) {
+                    await(previous.future, deadlineNanos); // a critical failure of a late read still stops the polling
+                }
+            }
+            List<ModbusDevice> devices = endpoint.getValue();
+            EndpointRead read = new EndpointRead();
+            read.future = modbusReadExecutor.submit(() -> {
+                for (ModbusDevice modbusDevice : devices) {
+                    readDevice(testStationId, modbusDevice, read);
+                }
+                return null;
+            });
+            stationReads.put(endpoint.getKey(), read);
+            collected.add(read);
+            dispatched.add(read);
+        }
+
+        // A stop interrupts only this wait, the reads themselves run to their end
+        int lateEndpoints = 0;
+        for (EndpointRead read : dispatched) {
+            if (!await(read.future, deadlineNanos)) {
+                read.late = true;
+                lateEndpoints++;
+                StationSnapshot.ReadTime running = read.currentAt(System.nanoTime());
+                if (running != null) {
+                    snapshot.addReadTime(running); // its full time follows with the snapshot it finishes in
+                }
+            }
+        }
+
+        // Readings are added in topology order, so the snapshot does not depend on which endpoint answered first
+        for (EndpointRead read : collected) {
+            StationSnapshot.Reading reading;
+            while ((reading = read.readings.poll()) != null) {
+                if (!read.discarded) {
+                    snapshot.add(reading);
+                }
+            }
+            StationSnapshot.ReadTime readTime;
+            while ((readTime = read.readTimes.poll()) != null) {
+                if (!read.discarded) {
+                    snapshot.addReadTime(readTime);
+                }
+            }
+        }
+        if (lateEndpoints + busyEndpoints > 0) {
+            snapshot.setLateEndpoints(lateEndpoints + busyEndpoints);
+            log.warn("{} endpoint(s) of test station {} missed the read deadline of tick {}, {} still busy with an earlier read",
+                    lateEndpoints, testStationId, tick, busyEndpoints);
+        }
+        log.debug("Acquired {} SubDevice readings for test station {}", snapshot.getReadings().size(), testStationId);
+        return snapshot;
+    }
+
+    // Readings of reads a previous polling run started are dropped; the reads still block their endpoints until they end
+    public void reset(int testStationId) {
+        Map<String, EndpointRead> stationReads = endpointReads.get(testStationId);
+        if (stationReads != null) {
+            stationReads.values().forEach(read -> read.discarded = true);
+        }
+    }
+
+    // False if the endpoint missed the deadline; its read goes on
+    private boolean await(Future<Void> result, long deadlineNanos) throws InterruptedException {
+        try {
+            result.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (java.util.concurrent.TimeoutException | CancellationException ex) {
+            return false;
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (ex.getCause() instanceof InterruptedException interruptedException) {
+                throw interruptedException;
+            }
+            throw new IllegalStateException("Endpoint read failed", ex.getCause());
+        }
+    }
+
+    private void readDevice(int testStationId, ModbusDevice modbusDevice, EndpointRead read) throws InterruptedException {
+        for (SubDevice subDevice : modbusDevice.getSubDevices()) {
+            long startedNanos = System.nanoTime();
+            read.startCurrent(modbusDevice, subDevice, startedNanos);
+            ReadOutcome outcome = ReadOutcome.FAILED;
+            try {
+                Map<Integer, Long> values = modbusBitwiseService.readSubDevice(testStationId, modbusDevice, subDevice);
+                read.readings.add(StationSnapshot.Reading.of(modbusDevice, subDevice, values, startedNanos));
+                outcome = ReadOutcome.OK;
+            } catch (InterruptedException ie) {
+                log.debug("Read of device {} interrupted for test station {}", modbusDevice.getIpAddress(), testStationId);
+                outcome = ReadOutcome.INTERRUPTED;
+                Thread.currentThread().interrupt(); // preserve interrupt status
+                throw ie;
+            } catch (CircuitOpenException ex) {
+                outcome = ReadOutcome.CIRCUIT_OPEN;
+                log.debug("Skipping [{} - {}]: {}", subDevice.getType(), testStationId, ex.getMessage());
+            } catch (ModbusDeviceException | WaitingRoomException | TimeoutException | ModbusTransportException ex) {
+                // Counted by the endpoint's circuit breaker; the other devices of the station keep polling
+                log.warn("Device failure [{} - {}], skipping: {}", subDevice.getType(), testStationId, ex.getMessage());
+            } catch (IllegalStateException ex) {
+                log.error("Exception [{} - {}]: {}", subDevice.getType(), testStationId, ex.getMessage(), ex);
+                throw criticalFailure(subDevice, ex);
+            } finally {
+                // Failed and slow reads are the ones the metrics are for
+                read.readTimes.add(new StationSnapshot.ReadTime(modbusDevice, subDevice, System.nanoTime() - startedNanos, outcome));
+                read.startCurrent(null, null, 0);
+            }
+        }
+    }
+
+    // The read of one endpoint, dispatched by one cycle and possibly finished during a later one
+    private static final class EndpointRead {
+        private final Queue<StationSnapshot.Reading> readings = new ConcurrentLinkedQueue<>();
+        private final Queue<StationSnapshot.ReadTime> readTimes = new ConcurrentLinkedQueue<>();
+        private volatile StationSnapshot.ReadTime current; // SubDevice being read, readNanos holds its start
+        private volatile Future<Void> future;
+        private volatile boolean discarded; // started by a previous polling run
+        private boolean late; // missed the deadline of the cycle that dispatched it, only used by the cycles
+
+        void startCurrent(ModbusDevice modbusDevice, SubDevice subDevice, long startedNanos) {
+            current = subDevice == null ? null : new StationSnapshot.ReadTime(modbusDevice, subDevice, startedNanos, ReadOutcome.LATE);
+        }
+
+        // How long the SubDevice being read has been running, null if none is
+        StationSnapshot.ReadTime currentAt(long nowNanos) {
+            StationSnapshot.ReadTime started = current;
+            return started == null ? null
+                    : new StationSnapshot.ReadTime(started.modbusDevice(), started.subDevice(), nowNanos - started.readNanos(), ReadOutcome.LATE);
+        }
+
+        boolean isRunning() {
+            return future != null && !future.isDone();
+        }
+    }
+
+    private RuntimeException criticalFailure(SubDevice subDevice, IllegalStateException cause) {
+        return switch (subDevice.getType()) {
+            case ENERGY -> new EnergyProcessingException("Critical failure in energy processing", cause);
+            case HEATING -> new HeatingProcessingException("Critical failure in heating processing", cause);
+            case GAS -> new GasProcessingException("Critical failure in gas processing", cause);
+            case CHP -> new ChpProcessingException("Critical failure in chp processing", cause);
+        };
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.backend.service.modbus.transport;
+
+import com.example.backend.config.TestStationConfig;
+import com.example.backend.enums.EnergyCalculationType;
+import com.example.backend.enums.WordOrder;
+import com.example.backend.exception.ModbusSlaveException;
+import com.example.backend.models.ModbusDevice;
+import com.example.backend.models.SubDevice;
+import com.example.backend.models.TestStation;
+import com.example.backend.service.modbus.ModbusReadPlanner;
+import com.example.backend.service.modbus.RegisterDecoder;
+import com.example.backend.service.modbus.RegisterSpan;
+import com.example.backend.simulator.ModbusTcpSimulator;
+import com.example.backend.simulator.RegisterGenerator;
+import com.example.backend.simulator.SimulatedModbusDevice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ModbusTransportSimulatorTest {
+
+  private ModbusTcpSimulator simulator;
+  private ModbusSelectorLoop selectorLoop;
+  private final List<ModbusTransport> transports = new ArrayList<>();
+
+  @BeforeEach
+  void setUp() throws IOException {
+    simulator = new ModbusTcpSimulator();
+    selectorLoop = new ModbusSelectorLoop();
+  }
+
+  @AfterEach
+  void tearDown() {
+    transports.forEach(ModbusTransport::destroy);
+    selectorLoop.shutdown();
+    simulator.close();
+  }
+
+  private ModbusTransport nio(SimulatedModbusDevice device) {
+    ModbusTransport transport = new NioModbusTcpTransport(device.getHost(), device.getPort(), 4,
+            new EndpointLatencyTracker(250, 2000, 3.0), selectorLoop);
+    transports.add(transport);
+    return transport;
+  }
+
+  @Test
+  void servesTheTestStationRegisterLayout() throws Exception {
+    TestStationConfig config = new TestStationConfig();
+    config.initialize();
+    simulator.generators(channel -> channel == EnergyCalculationType.ACTIVE_POWER
+            ? RegisterGenerator.constant(0x0001_0002_0003_0004L)
+            : RegisterGenerator.constant(42));
+    TestStation station = simulator.simulate(config.getTestStations()).get(0);
+
+    ModbusDevice energyDevice = station.getModbusDevices().get(0);
+    SubDevice energy = energyDevice.getSubDevices().get(0);
+    ModbusTransport transport = nio(simulator.getDevices().get(0));
+    ModbusReadPlanner planner = new ModbusReadPlanner();
+
+    int activePowerAddress = EnergyCalculationType.ACTIVE_POWER.getStartAddress(energy);
+    for (RegisterSpan span : planner.planSpans(energy, planner.getStartAddresses(energy))) {
+      short[] registers = transport.readHoldingRegisters(energy.getSlaveId(), span.getStartAddress(), span.getQuantity());
+      assertEquals(span.getQuantity(), registers.length);
+      if (span.contains(activePowerAddress, 4)) {
+        int offset = activePowerAddress - span.getStartAddress();
+        assertEquals(0x0001_0002_0003_0004L, RegisterDecoder.int64(registers, offset, WordOrder.HIGH_WORD_FIRST));
+      }
+    }
+
+    // Device 7 carries the CHP operating hours as a 32 bit value, low word first
+    ModbusDevice chpDevice = station.getModbusDevices().get(2);
+    SubDevice operatingHours = chpDevice.getSubDevices().get(1);
+    short[] hours = nio(simulator.getDevices().get(2)).readHoldingRegisters(1, operatingHours.getStartAddress() + 43587, 2);
+    assertEquals(42, RegisterDecoder.uint32(hours, 0, WordOrder.LOW_WORD_FIRST));
+  }
+
+  @Test
+  void reportsExceptionCode11AsSlaveException() throws Exception {
+    SimulatedModbusDevice device = simulator.startDevice().busyProbability(1.0);
+    device.unit(1).define(0, 1, WordOrder.HIGH_WORD_FIRST, RegisterGenerator.constant(1));
+
+    ModbusSlaveException e = assertThrows(ModbusSlaveException.class, () -> nio(device).readHoldingRegisters(1, 0, 1));
+    assertEquals(SimulatedModbusDevice.EXCEPTION_TARGET_FAILED_TO_RESPOND, e.getExceptionCode());
+  }
+
+  @Test
+  void failsOutstandingRequestsOnDroppedConnectionAndReconnects() throws Exception {
+    SimulatedModbusDevice device = simulator.startDevice().latency(200, 0);
+    device.unit(1).define(0, 1, WordOrder.HIGH_WORD_FIRST, RegisterGenerator.constant(7));
+    ModbusTransport transport = nio(device);
+
+    assertEquals(7, transport.readHoldingRegisters(1, 0, 1)[0]);
+    CompletableFuture<short[]> outstanding = transport.readHoldingRegistersAsync(1, 0, 1);
+    Thread.sleep(50);
+    device.dropConnections();
+    assertThrows(ExecutionException.class, () -> outstanding.get(2, TimeUnit.SECONDS));
+
+    assertEquals(7, transport.readHoldingRegisters(1, 0, 1)[0]);
+  }
+
+  @Test
+  void servesHundredsOfDevicesFromOneSelectorThread() throws Exception {
+    List<CompletableFuture<short[]>> reads = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      SimulatedModbusDevice device = simulator.startDevice().latency(5, 20);
+      device.unit(1).define(100, 2, WordOrder.LOW_WORD_FIRST, RegisterGenerator.constant(i));
+      ModbusTransport transport = nio(device);
+      for (int k = 0; k < 4; k++) {
+        reads.add(transport.readHoldingRegistersAsync(1, 100, 2));
+      }
+    }
+    for (int i = 0; i < reads.size(); i++) {
+      short[] registers = reads.get(i).get(10, TimeUnit.SECONDS);
+      assertEquals(i / 4, RegisterDecoder.uint32(registers, 0, WordOrder.LOW_WORD_FIRST));
+    }
+  }
+}
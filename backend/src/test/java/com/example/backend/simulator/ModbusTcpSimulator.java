@@ -0,0 +1,102 @@
+package com.example.backend.simulator;
+
+import com.example.backend.enums.PolledChannel;
+import com.example.backend.enums.WordOrder;
+import com.example.backend.models.ModbusDevice;
+import com.example.backend.models.SubDevice;
+import com.example.backend.models.TestStation;
+import com.example.backend.service.modbus.ModbusReadPlanner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * Spins up simulated Modbus TCP gateways on localhost. {@link #simulate} mirrors the register layout of
+ * TestStationConfig-style stations: it starts one gateway per distinct ip:port and defines every
+ * calculation type with the register width and word order the backend decodes. It then returns copies
+ * of the stations that point at the simulators. Call it repeatedly to get hundreds of independent gateways.
+ */
+public class ModbusTcpSimulator implements AutoCloseable {
+
+  private static final Set<String> COUNTERS = Set.of("GENERATED_ENERGY", "CONSUMED_ENERGY", "GENERATED_ENERGY_HEATING",
+          "TOTAL_VOLUME", "GAS_METER", "OPERATING_HOURS", "START_COUNT");
+
+  private final ScheduledExecutorService responder = Executors.newScheduledThreadPool(2, runnable -> {
+    Thread thread = new Thread(runnable, "sim-responder");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final List<SimulatedModbusDevice> devices = new CopyOnWriteArrayList<>();
+  private final ModbusReadPlanner modbusReadPlanner = new ModbusReadPlanner();
+  private Function<PolledChannel, RegisterGenerator> generators = ModbusTcpSimulator::defaultGenerator;
+
+  public ModbusTcpSimulator generators(Function<PolledChannel, RegisterGenerator> generators) {
+    this.generators = generators;
+    return this;
+  }
+
+  public SimulatedModbusDevice startDevice() {
+    try {
+      SimulatedModbusDevice device = new SimulatedModbusDevice(responder);
+      devices.add(device);
+      return device;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to start simulated Modbus device", e);
+    }
+  }
+
+  public List<SimulatedModbusDevice> getDevices() {
+    return List.copyOf(devices);
+  }
+
+  public List<TestStation> simulate(List<TestStation> testStations) {
+    Map<String, SimulatedModbusDevice> gateways = new HashMap<>();
+    Map<ModbusDevice, ModbusDevice> rebound = new IdentityHashMap<>(); // a device shared by stations stays shared
+    List<TestStation> simulated = new ArrayList<>();
+    for (TestStation testStation : testStations) {
+      List<ModbusDevice> modbusDevices = new ArrayList<>();
+      for (ModbusDevice modbusDevice : testStation.getModbusDevices()) {
+        modbusDevices.add(rebound.computeIfAbsent(modbusDevice, device -> {
+          SimulatedModbusDevice gateway = gateways.computeIfAbsent(device.getIpAddress() + ":" + device.getPort(),
+                  endpoint -> startDevice());
+          for (SubDevice subDevice : device.getSubDevices()) {
+            populate(gateway.unit(subDevice.getSlaveId()), subDevice);
+          }
+          return new ModbusDevice(gateway.getHost(), gateway.getPort(), device.getSubDevices());
+        }));
+      }
+      simulated.add(new TestStation(testStation.getId(), testStation.getTestStationName(), modbusDevices));
+    }
+    return simulated;
+  }
+
+  private void populate(SimulatedRegisterMap registers, SubDevice subDevice) {
+    int width = subDevice.getRegistersQuantity();
+    // Same layouts as ModbusBitwiseService: 32 bit values low word first, 64 bit values high word first
+    WordOrder wordOrder = width == 2 ? WordOrder.LOW_WORD_FIRST : WordOrder.HIGH_WORD_FIRST;
+    for (PolledChannel channel : modbusReadPlanner.getChannels(subDevice)) {
+      registers.define(channel.getStartAddress(subDevice), width, wordOrder, generators.apply(channel));
+    }
+  }
+
+  private static RegisterGenerator defaultGenerator(PolledChannel channel) {
+    if (COUNTERS.contains(channel.name())) {
+      return RegisterGenerator.counter(10_000, 5);
+    }
+    return RegisterGenerator.sine(5_000, 500, 10_000);
+  }
+
+  @Override
+  public void close() {
+    for (SimulatedModbusDevice device : devices) {
+      device.close();
+    }
+    devices.clear();
+    responder.shutdownNow();
+  }
+}
@@ -0,0 +1,22 @@
+package com.example.backend.simulator;
+
+// Raw value of a simulated channel as a function of the time since the simulator started
+@FunctionalInterface
+public interface RegisterGenerator {
+
+  long valueAt(long elapsedMillis);
+
+  static RegisterGenerator constant(long value) {
+    return elapsedMillis -> value;
+  }
+
+  // Monotonic meter reading, e.g. energy or gas counters
+  static RegisterGenerator counter(long start, double incrementPerSecond) {
+    return elapsedMillis -> start + (long) (elapsedMillis * incrementPerSecond / 1000.0);
+  }
+
+  // Fluctuating measurement, e.g. power or temperatures
+  static RegisterGenerator sine(long mean, long amplitude, long periodMillis) {
+    return elapsedMillis -> mean + Math.round(amplitude * Math.sin(2 * Math.PI * elapsedMillis / periodMillis));
+  }
+}
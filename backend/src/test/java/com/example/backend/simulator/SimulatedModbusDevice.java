@@ -0,0 +1,196 @@
+package com.example.backend.simulator;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One simulated Modbus TCP gateway on localhost. It answers Read Holding Registers (function code 3)
+ * for the unit ids it knows. Responses can be delayed by a fixed latency plus random jitter. Delayed
+ * responses may overtake each other, as they would on a gateway that serves requests in parallel.
+ * It can also answer with exception code 11 or drop the connection instead of answering.
+ */
+@Slf4j
+public class SimulatedModbusDevice implements AutoCloseable {
+
+  public static final byte EXCEPTION_ILLEGAL_DATA_ADDRESS = 2;
+  public static final byte EXCEPTION_TARGET_FAILED_TO_RESPOND = 11;
+
+  private final ServerSocket serverSocket;
+  private final ScheduledExecutorService responder;
+  private final Map<Integer, SimulatedRegisterMap> units = new ConcurrentHashMap<>();
+  private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+  private final long startNanos = System.nanoTime();
+  private final AtomicLong requestCount = new AtomicLong();
+
+  private volatile long latencyMillis;
+  private volatile long jitterMillis;
+  private volatile double busyProbability;
+  private volatile double dropProbability;
+  private volatile boolean closed;
+
+  SimulatedModbusDevice(ScheduledExecutorService responder) throws IOException {
+    this.responder = responder;
+    this.serverSocket = new ServerSocket(0, 200, InetAddress.getLoopbackAddress());
+    Thread.ofVirtual().name("sim-accept-" + getPort()).start(this::acceptLoop);
+  }
+
+  public SimulatedRegisterMap unit(int unitId) {
+    return units.computeIfAbsent(unitId, id -> new SimulatedRegisterMap());
+  }
+
+  public String getHost() {
+    return serverSocket.getInetAddress().getHostAddress();
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  public SimulatedModbusDevice latency(long latencyMillis, long jitterMillis) {
+    this.latencyMillis = latencyMillis;
+    this.jitterMillis = jitterMillis;
+    return this;
+  }
+
+  // Share of requests answered with exception code 11 (gateway target device failed to respond)
+  public SimulatedModbusDevice busyProbability(double busyProbability) {
+    this.busyProbability = busyProbability;
+    return this;
+  }
+
+  // Share of requests on which the connection is closed instead of answered
+  public SimulatedModbusDevice dropProbability(double dropProbability) {
+    this.dropProbability = dropProbability;
+    return this;
+  }
+
+  // Closes every open client connection, as a gateway reboot would
+  public void dropConnections() {
+    for (Socket client : clients) {
+      closeQuietly(client);
+    }
+  }
+
+  private void acceptLoop() {
+    while (!closed) {
+      try {
+        Socket client = serverSocket.accept();
+        client.setTcpNoDelay(true);
+        clients.add(client);
+        Thread.ofVirtual().name("sim-serve-" + getPort()).start(() -> serve(client));
+      } catch (IOException e) {
+        if (!closed) {
+          log.warn("Simulator on port {} stopped accepting: {}", getPort(), e.getMessage());
+        }
+        return;
+      }
+    }
+  }
+
+  private void serve(Socket client) {
+    byte[] header = new byte[7];
+    try (client) {
+      DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+      OutputStream out = client.getOutputStream();
+      while (!closed) {
+        in.readFully(header);
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        int transactionId = headerBuffer.getShort(0) & 0xFFFF;
+        int length = headerBuffer.getShort(4) & 0xFFFF;
+        int unitId = header[6] & 0xFF;
+        byte[] pdu = new byte[length - 1];
+        in.readFully(pdu);
+        requestCount.incrementAndGet();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < dropProbability) {
+          return; // closes the connection with requests still outstanding
+        }
+        byte[] response = respond(transactionId, unitId, ByteBuffer.wrap(pdu), random);
+        long delay = latencyMillis + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0);
+        if (delay == 0) {
+          write(out, response);
+        } else {
+          responder.schedule(() -> write(out, response), delay, TimeUnit.MILLISECONDS);
+        }
+      }
+    } catch (EOFException e) {
+      log.debug("Client disconnected from simulator on port {}", getPort());
+    } catch (IOException e) {
+      if (!closed) {
+        log.debug("Simulator connection on port {} failed: {}", getPort(), e.getMessage());
+      }
+    } finally {
+      clients.remove(client);
+    }
+  }
+
+  private byte[] respond(int transactionId, int unitId, ByteBuffer pdu, ThreadLocalRandom random) {
+    byte functionCode = pdu.get();
+    int startAddress = pdu.getShort() & 0xFFFF;
+    int quantity = pdu.getShort() & 0xFFFF;
+    SimulatedRegisterMap registers = units.get(unitId);
+
+    if (functionCode != 0x03 || registers == null || quantity < 1 || quantity > 125) {
+      return exceptionFrame(transactionId, unitId, functionCode, EXCEPTION_ILLEGAL_DATA_ADDRESS);
+    }
+    if (random.nextDouble() < busyProbability) {
+      return exceptionFrame(transactionId, unitId, functionCode, EXCEPTION_TARGET_FAILED_TO_RESPOND);
+    }
+
+    short[] words = registers.read(startAddress, quantity, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    ByteBuffer frame = ByteBuffer.allocate(9 + 2 * quantity);
+    frame.putShort((short) transactionId).putShort((short) 0).putShort((short) (3 + 2 * quantity));
+    frame.put((byte) unitId).put(functionCode).put((byte) (2 * quantity));
+    for (short word : words) {
+      frame.putShort(word);
+    }
+    return frame.array();
+  }
+
+  private static byte[] exceptionFrame(int transactionId, int unitId, byte functionCode, byte exceptionCode) {
+    ByteBuffer frame = ByteBuffer.allocate(9);
+    frame.putShort((short) transactionId).putShort((short) 0).putShort((short) 3);
+    frame.put((byte) unitId).put((byte) (functionCode | 0x80)).put(exceptionCode);
+    return frame.array();
+  }
+
+  private void write(OutputStream out, byte[] frame) {
+    try {
+      synchronized (out) {
+        out.write(frame);
+        out.flush();
+      }
+    } catch (IOException e) {
+      log.debug("Simulator on port {} could not send response: {}", getPort(), e.getMessage());
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    try {
+      closeable.close();
+    } catch (IOException ignored) {
+      // already closed
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    closeQuietly(serverSocket);
+    dropConnections();
+  }
+}
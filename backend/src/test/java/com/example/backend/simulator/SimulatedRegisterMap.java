@@ -0,0 +1,47 @@
+package com.example.backend.simulator;
+
+import com.example.backend.enums.WordOrder;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Holding registers of one unit id; values are generated on every read
+public class SimulatedRegisterMap {
+
+  private static final int MAX_WIDTH = 4;
+
+  private final NavigableMap<Integer, Channel> channels = new ConcurrentSkipListMap<>();
+
+  private record Channel(int startAddress, int width, WordOrder wordOrder, RegisterGenerator generator) {
+  }
+
+  public SimulatedRegisterMap define(int startAddress, int width, WordOrder wordOrder, RegisterGenerator generator) {
+    if (width < 1 || width > MAX_WIDTH) {
+      throw new IllegalArgumentException("Unsupported register width " + width);
+    }
+    channels.put(startAddress, new Channel(startAddress, width, wordOrder, generator));
+    return this;
+  }
+
+  public boolean isEmpty() {
+    return channels.isEmpty();
+  }
+
+  // Undefined registers read as 0, like most gateways with sparse maps
+  public short[] read(int startAddress, int quantity, long elapsedMillis) {
+    short[] words = new short[quantity];
+    int end = startAddress + quantity;
+    for (Map.Entry<Integer, Channel> entry : channels.subMap(startAddress - MAX_WIDTH + 1, true, end, false).entrySet()) {
+      Channel channel = entry.getValue();
+      long value = channel.generator().valueAt(elapsedMillis);
+      for (int k = 0; k < channel.width(); k++) {
+        int address = channel.startAddress() + k;
+        if (address < startAddress || address >= end) continue;
+        int shift = channel.wordOrder() == WordOrder.HIGH_WORD_FIRST ? channel.width() - 1 - k : k;
+        words[address - startAddress] = (short) (value >>> (16 * shift));
+      }
+    }
+    return words;
+  }
+}
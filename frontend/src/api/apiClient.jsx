@@ -118,9 +118,11 @@ export const fetchMachineTypes = async () => {
 };
 
 // Fetch product status for a given serienNummer
-export const fetchProductStatus = async (serialNumber) => {
+export const fetchProductStatus = async (serialNumber, testStationId) => {
   try {
-    const response = await apiClient.get(`${API_ENDPOINTS.productStatus}/${serialNumber}`);
+    const response = await apiClient.get(`${API_ENDPOINTS.productStatus}/${serialNumber}`, {
+      params: { testStationId }
+    });
     return response.data;
   } catch (error) {
     console.error("Error fetching product status:", error);
@@ -129,9 +131,11 @@ export const fetchProductStatus = async (serialNumber) => {
 };
 
 // Transmit data for a device
-export const submit = async () => {
+export const submit = async (testStationId) => {
   try {
-    const response = await apiClient.post(`${API_ENDPOINTS.protocols}/submit`);
+    const response = await apiClient.post(`${API_ENDPOINTS.protocols}/submit`, null, {
+      params: { testStationId }
+    });
     return response.data;
   } catch (error) {
        if (error.response?.status === 404) {
@@ -118,7 +118,7 @@ const useDeviceMonitor = () => {
 
     if (!serialNumber) return;
     try {
-      const data = await fetchProductStatus(serialNumber);
+      const data = await fetchProductStatus(serialNumber, selectedDevice);
       setProductStatus(data);
       // Check if the product status is 70
       if (data === 20) {